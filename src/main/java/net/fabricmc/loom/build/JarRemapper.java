@@ -33,10 +33,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
 import org.gradle.api.Action;
 import org.objectweb.asm.commons.Remapper;
 
+import net.fabricmc.loom.util.ClasspathIndex;
+import net.fabricmc.loom.util.StreamingRemapper;
 import net.fabricmc.stitch.util.Pair;
 import net.fabricmc.tinyremapper.IMappingProvider;
 import net.fabricmc.tinyremapper.InputTag;
@@ -46,8 +49,10 @@ import net.fabricmc.tinyremapper.TinyRemapper;
 public class JarRemapper {
 	private final List<IMappingProvider> mappingProviders = new ArrayList<>();
 	private final Set<Path> classPath = new HashSet<>();
+	private final Set<Path> indexedClassPath = new HashSet<>();
 	private final List<RemapData> remapData = new ArrayList<>();
 	private List<Action<TinyRemapper.Builder>> remapOptions;
+	private ClasspathIndex classpathIndex;
 
 	public void addMappings(IMappingProvider mappingProvider) {
 		mappingProviders.add(mappingProvider);
@@ -57,6 +62,18 @@ public class JarRemapper {
 		classPath.addAll(Arrays.asList(paths));
 	}
 
+	/**
+	 * Adds jars that do not change between builds to the classpath, these are read through the classpath index when one is set.
+	 */
+	public void addToIndexedClasspath(Path... paths) {
+		addToClasspath(paths);
+		indexedClassPath.addAll(Arrays.asList(paths));
+	}
+
+	public void setClasspathIndex(ClasspathIndex classpathIndex) {
+		this.classpathIndex = classpathIndex;
+	}
+
 	public RemapData scheduleRemap(Path input, Path output) {
 		RemapData data = new RemapData(input, output);
 		remapData.add(data);
@@ -64,23 +81,19 @@ public class JarRemapper {
 	}
 
 	public void remap() throws IOException {
-		TinyRemapper.Builder remapperBuilder = TinyRemapper.newRemapper();
-		mappingProviders.forEach(remapperBuilder::withMappings);
-
-		if (remapOptions != null) {
-			for (Action<TinyRemapper.Builder> remapOption : remapOptions) {
-				remapOption.execute(remapperBuilder);
-			}
-		}
-
-		TinyRemapper remapper = remapperBuilder.build();
-
-		Path[] remapClasspath = classPath.stream()
+		Path[] remapClasspath = classPath.parallelStream()
 				.filter(path ->
 						remapData.stream().noneMatch(remapData -> remapData.input.equals(path))
 				)
+				.map(path -> classpathIndex != null && indexedClassPath.contains(path) ? classpathIndex.index(path) : path)
 				.toArray(Path[]::new);
 
+		if (StreamingRemapper.isEnabled()) {
+			remapStreaming(remapClasspath);
+			return;
+		}
+
+		TinyRemapper remapper = createRemapper();
 		remapper.readClassPathAsync(remapClasspath);
 
 		for (RemapData data : remapData) {
@@ -110,6 +123,36 @@ public class JarRemapper {
 		remapData.forEach(RemapData::complete);
 	}
 
+	private void remapStreaming(Path[] remapClasspath) throws IOException {
+		// The inputs are part of each other's hierarchy, only the classes of one batch are read as input at a time.
+		// They are project outputs that change on every build, so they are not indexed.
+		Stream<Path> inputs = remapData.stream().map(data -> data.input);
+		Path[] hierarchy = Stream.concat(Arrays.stream(remapClasspath), inputs).toArray(Path[]::new);
+		StreamingRemapper streamingRemapper = new StreamingRemapper(this::createRemapper, hierarchy);
+
+		for (RemapData data : remapData) {
+			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(data.output).build()) {
+				outputConsumer.addNonClassFiles(data.input);
+				streamingRemapper.remap(data.input, outputConsumer, data::processAccessWidener);
+			}
+		}
+
+		remapData.forEach(RemapData::complete);
+	}
+
+	private TinyRemapper createRemapper() {
+		TinyRemapper.Builder remapperBuilder = TinyRemapper.newRemapper();
+		mappingProviders.forEach(remapperBuilder::withMappings);
+
+		if (remapOptions != null) {
+			for (Action<TinyRemapper.Builder> remapOption : remapOptions) {
+				remapOption.execute(remapperBuilder);
+			}
+		}
+
+		return remapperBuilder.build();
+	}
+
 	public void addOptions(List<Action<TinyRemapper.Builder>> remapOptions) {
 		this.remapOptions = remapOptions;
 	}
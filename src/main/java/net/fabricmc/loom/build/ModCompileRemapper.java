@@ -26,10 +26,11 @@ package net.fabricmc.loom.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
-import java.util.zip.ZipFile;
+import java.util.stream.Collectors;
 
 import com.google.common.io.Files;
 import org.gradle.api.Project;
@@ -52,9 +53,12 @@ import org.jetbrains.annotations.Nullable;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
+import net.fabricmc.loom.configuration.mods.ModMetadataIndex;
+import net.fabricmc.loom.configuration.mods.ModMetadataIndex.ModMetadata;
 import net.fabricmc.loom.configuration.mods.ModProcessor;
 import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
 import net.fabricmc.loom.configuration.processors.dependency.RemapData;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsCache;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.OperatingSystem;
@@ -76,99 +80,114 @@ public class ModCompileRemapper {
 		boolean refreshDeps = LoomGradlePlugin.refreshDeps;
 
 		final File modStore = extension.getFiles().getRemappedModCache();
-		final RemapData remapData = new RemapData(mappingsSuffix, modStore);
+		final String mappingsHash;
 
-		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
-			extension.getLazyConfigurationProvider(entry.getRemappedConfiguration()).configure(remappedConfig -> {
-				Configuration sourceConfig = project.getConfigurations().getByName(entry.sourceConfiguration());
-				Configuration regularConfig = project.getConfigurations().getByName(entry.getTargetConfiguration(project.getConfigurations()));
+		try {
+			// Daemon wide, the mappings are only hashed again when they change
+			mappingsHash = MappingsCache.INSTANCE.getHash(extension.getMappingsProvider().tinyMappings.toPath());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to hash the mappings", e);
+		}
 
-				List<ModDependencyInfo> modDependencies = new ArrayList<>();
+		final RemapData remapData = new RemapData(mappingsSuffix, modStore, extension.getFiles().getSharedRemappedModStore(), mappingsHash);
 
-				for (ResolvedArtifact artifact : sourceConfig.getResolvedConfiguration().getResolvedArtifacts()) {
-					String group = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getGroup(), () -> MISSING_GROUP);
-					String name = artifact.getModuleVersion().getId().getName();
-					String version = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getVersion(), () -> Checksum.truncatedSha256(artifact.getFile()));
+		// Read the metadata of every artifact up front, new artifacts are opened in parallel
+		final ModMetadataIndex metadataIndex = new ModMetadataIndex(extension.getFiles().getModMetadataStore().toPath());
+		metadataIndex.scan(Constants.MOD_COMPILE_ENTRIES.stream()
+				.flatMap(entry -> project.getConfigurations().getByName(entry.sourceConfiguration()).getFiles().stream())
+				.collect(Collectors.toSet()));
 
-					if (!isFabricMod(logger, artifact.getFile(), artifact.getId())) {
-						addToRegularCompile(project, regularConfig, artifact);
-						continue;
-					}
+		// Mods of every configuration are remapped together, so the classpath is only read once
+		List<ModDependencyInfo> modDependencies = new ArrayList<>();
 
-					ModDependencyInfo info = new ModDependencyInfo(group, name, version, artifact.getClassifier(), artifact.getFile(), remappedConfig, remapData);
-					modDependencies.add(info);
+		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
+			Configuration remappedConfig = extension.getLazyConfigurationProvider(entry.getRemappedConfiguration()).get();
+			Configuration sourceConfig = project.getConfigurations().getByName(entry.sourceConfiguration());
+			Configuration regularConfig = project.getConfigurations().getByName(entry.getTargetConfiguration(project.getConfigurations()));
 
-					File remappedSources = info.getRemappedOutput("sources");
+			for (ResolvedArtifact artifact : sourceConfig.getResolvedConfiguration().getResolvedArtifacts()) {
+				String group = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getGroup(), () -> MISSING_GROUP);
+				String name = artifact.getModuleVersion().getId().getName();
+				String version = replaceIfNullOrEmpty(artifact.getModuleVersion().getId().getVersion(), () -> Checksum.truncatedSha256(artifact.getFile()));
 
-					if ((!remappedSources.exists() || refreshDeps) && !OperatingSystem.isCIBuild()) {
-						File sources = findSources(dependencies, artifact);
+				ModMetadata metadata = metadataIndex.get(artifact.getFile());
 
-						if (sources != null) {
-							scheduleSourcesRemapping(project, sourceRemapper, sources, info.getRemappedNotation(), remappedSources);
-						}
-					}
+				if (!isFabricMod(logger, metadata, artifact.getId())) {
+					addToRegularCompile(project, regularConfig, artifact);
+					continue;
 				}
 
-				// FileCollectionDependency (files/fileTree) doesn't resolve properly,
-				// so we have to "resolve" it on our own. The naming is "abc.jar" => "unspecified:abc:unspecified".
-				for (FileCollectionDependency dependency : sourceConfig.getAllDependencies().withType(FileCollectionDependency.class)) {
-					String group = replaceIfNullOrEmpty(dependency.getGroup(), () -> MISSING_GROUP);
-					FileCollection files = dependency.getFiles();
+				ModDependencyInfo info = new ModDependencyInfo(group, name, version, artifact.getClassifier(), artifact.getFile(), remappedConfig, remapData, metadata);
+				modDependencies.add(info);
 
-					// Create a mod dependency for each file in the file collection
-					for (File artifact : files) {
-						if (!isFabricMod(logger, artifact, artifact.getName())) {
-							dependencies.add(regularConfig.getName(), project.files(artifact));
-							continue;
-						}
+				File remappedSources = info.getRemappedOutput("sources");
 
-						String name = Files.getNameWithoutExtension(artifact.getAbsolutePath());
-						String version = replaceIfNullOrEmpty(dependency.getVersion(), () -> Checksum.truncatedSha256(artifact));
+				if ((!remappedSources.exists() || refreshDeps) && !OperatingSystem.isCIBuild()) {
+					File sources = findSources(dependencies, artifact);
 
-						ModDependencyInfo info = new ModDependencyInfo(group, name, version, null, artifact, remappedConfig, remapData);
-						modDependencies.add(info);
+					if (sources != null) {
+						scheduleSourcesRemapping(project, sourceRemapper, sources, info.getRemappedNotation(), remappedSources);
 					}
 				}
+			}
+
+			// FileCollectionDependency (files/fileTree) doesn't resolve properly,
+			// so we have to "resolve" it on our own. The naming is "abc.jar" => "unspecified:abc:unspecified".
+			for (FileCollectionDependency dependency : sourceConfig.getAllDependencies().withType(FileCollectionDependency.class)) {
+				String group = replaceIfNullOrEmpty(dependency.getGroup(), () -> MISSING_GROUP);
+				FileCollection files = dependency.getFiles();
+
+				// Create a mod dependency for each file in the file collection
+				for (File artifact : files) {
+					ModMetadata metadata = metadataIndex.get(artifact);
 
-				for (ModDependencyInfo info : modDependencies) {
-					if (refreshDeps) {
-						info.forceRemap();
+					if (!isFabricMod(logger, metadata, artifact.getName())) {
+						dependencies.add(regularConfig.getName(), project.files(artifact));
+						continue;
 					}
 
-					String remappedLog = info.getRemappedNotation() + " (" + mappingsSuffix + ")";
-					project.getLogger().info(":providing " + remappedLog);
-				}
+					String name = Files.getNameWithoutExtension(artifact.getAbsolutePath());
+					String version = replaceIfNullOrEmpty(dependency.getVersion(), () -> Checksum.truncatedSha256(artifact));
 
-				try {
-					ModProcessor.processMods(project, modDependencies);
-				} catch (IOException e) {
-					// Failed to remap, lets clean up to ensure we try again next time
-					modDependencies.forEach(info -> info.getRemappedOutput().delete());
-					throw new RuntimeException("Failed to remap mods", e);
+					ModDependencyInfo info = new ModDependencyInfo(group, name, version, null, artifact, remappedConfig, remapData, metadata);
+					modDependencies.add(info);
 				}
+			}
+		}
 
-				// Add all of the remapped mods onto the config
-				for (ModDependencyInfo info : modDependencies) {
-					project.getDependencies().add(info.targetConfig.getName(), info.getRemappedNotation());
-				}
-			});
+		for (ModDependencyInfo info : modDependencies) {
+			if (refreshDeps) {
+				info.forceRemap();
+			}
+
+			String remappedLog = info.getRemappedNotation() + " (" + mappingsSuffix + ")";
+			project.getLogger().info(":providing " + remappedLog);
+		}
+
+		try {
+			ModProcessor.processMods(project, modDependencies);
+		} catch (IOException e) {
+			// Failed to remap, lets clean up to ensure we try again next time
+			modDependencies.forEach(info -> info.getRemappedOutput().delete());
+			throw new RuntimeException("Failed to remap mods", e);
+		}
+
+		// Add all of the remapped mods onto their config
+		for (ModDependencyInfo info : modDependencies) {
+			project.getDependencies().add(info.targetConfig.getName(), info.getRemappedNotation());
 		}
 	}
 
 	/**
 	 * Checks if an artifact is a fabric mod, according to the presence of a fabric.mod.json.
 	 */
-	private static boolean isFabricMod(Logger logger, File artifact, Object id) {
-		try (ZipFile zipFile = new ZipFile(artifact)) {
-			if (zipFile.getEntry("fabric.mod.json") != null) {
-				logger.info("Found Fabric mod in modCompile: {}", id);
-				return true;
-			}
-
-			return false;
-		} catch (IOException e) {
-			return false;
+	private static boolean isFabricMod(Logger logger, ModMetadata metadata, Object id) {
+		if (metadata.isMod()) {
+			logger.info("Found Fabric mod in modCompile: {}", id);
+			return true;
 		}
+
+		return false;
 	}
 
 	private static void addToRegularCompile(Project project, Configuration regularCompile, ResolvedArtifact artifact) {
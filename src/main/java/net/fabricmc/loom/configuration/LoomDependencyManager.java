@@ -41,6 +41,7 @@ import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.build.ModCompileRemapper;
 import net.fabricmc.loom.configuration.DependencyProvider.DependencyInfo;
+import net.fabricmc.loom.configuration.mods.ModMetadataIndex;
 import net.fabricmc.loom.configuration.mods.ModProcessor;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.util.Constants;
@@ -144,6 +145,7 @@ public class LoomDependencyManager {
 			//If we've not found the installer JSON we've probably skipped remapping Fabric loader, let's go looking
 			project.getLogger().info("Searching through modCompileClasspath for installer JSON");
 			final Configuration configuration = project.getConfigurations().getByName(Constants.Configurations.MOD_COMPILE_CLASSPATH);
+			new ModMetadataIndex(extension.getFiles().getModMetadataStore().toPath()).scan(configuration.getFiles());
 
 			for (Dependency dependency : configuration.getAllDependencies()) {
 				for (File input : configuration.files(dependency)) {
@@ -29,24 +29,25 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.zip.ZipEntry;
+import java.util.Map;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.commons.Remapper;
 import org.zeroturnaround.zip.ZipUtil;
-import org.zeroturnaround.zip.transform.ByteArrayZipEntryTransformer;
-import org.zeroturnaround.zip.transform.ZipEntryTransformer;
-import org.zeroturnaround.zip.transform.ZipEntryTransformerEntry;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
@@ -54,12 +55,12 @@ import net.fabricmc.accesswidener.AccessWidenerRemapper;
 import net.fabricmc.accesswidener.AccessWidenerVisitor;
 import net.fabricmc.accesswidener.AccessWidenerWriter;
 import net.fabricmc.loom.LoomGradleExtension;
-import net.fabricmc.loom.configuration.processors.JarProcessor;
+import net.fabricmc.loom.configuration.processors.ClassVisitorJarProcessor;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.tinyremapper.TinyRemapper;
+import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
 
-public class AccessWidenerJarProcessor implements JarProcessor {
+public class AccessWidenerJarProcessor implements ClassVisitorJarProcessor {
 	private AccessWidener accessWidener = new AccessWidener();
 	private AccessWidenerReader accessWidenerReader = new AccessWidenerReader(accessWidener);
 	private final Project project;
@@ -94,13 +95,11 @@ public class AccessWidenerJarProcessor implements JarProcessor {
 					throw new UnsupportedOperationException(String.format("Access Widener namespace '%s' is not a valid namespace, it must be one of: '%s'", accessWidener.getNamespace(), String.join(", ", validNamespaces)));
 				}
 
-				TinyRemapper tinyRemapper = loomGradleExtension.getMinecraftMappedProvider().getTinyRemapper("official", "named");
-				tinyRemapper.readClassPath(loomGradleExtension.getMinecraftMappedProvider().getRemapClasspath());
+				// Access widener entries name the class that declares the member, so the mappings alone are enough without a class hierarchy
+				Remapper asmRemapper = TinyRemapperMappingsHelper.createAsmRemapper(loomGradleExtension.getMappingsProvider().getMappings(), accessWidener.getNamespace(), "named");
 
-				AccessWidenerRemapper remapper = new AccessWidenerRemapper(accessWidener, tinyRemapper.getRemapper(), "named");
+				AccessWidenerRemapper remapper = new AccessWidenerRemapper(accessWidener, asmRemapper, "named");
 				accessWidener = remapper.remap();
-
-				tinyRemapper.finish();
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to remap access widener", e);
 			}
@@ -108,32 +107,70 @@ public class AccessWidenerJarProcessor implements JarProcessor {
 	}
 
 	@Override
-	public void process(File file) {
-		project.getLogger().lifecycle("Processing file: " + file.getName());
-		ZipUtil.transformEntries(file, getTransformers(accessWidener.getTargets()));
-		ZipUtil.addEntry(file, "aw.sha256", inputHash);
+	public boolean transformsClass(String className) {
+		return accessWidener.getTargets().contains(className.replace('/', '.'));
 	}
 
-	private ZipEntryTransformerEntry[] getTransformers(Set<String> classes) {
-		return classes.stream()
-				.map(string -> new ZipEntryTransformerEntry(string.replaceAll("\\.", "/") + ".class", getTransformer(string)))
-				.toArray(ZipEntryTransformerEntry[]::new);
+	@Override
+	public ClassVisitor createClassVisitor(String className, ClassVisitor next) {
+		project.getLogger().lifecycle("Applying access widener to " + className.replace('/', '.'));
+		return AccessWidenerVisitor.createClassVisitor(Constants.ASM_VERSION, next, accessWidener);
 	}
 
-	private ZipEntryTransformer getTransformer(String className) {
-		return new ByteArrayZipEntryTransformer() {
-			@Override
-			protected byte[] transform(ZipEntry zipEntry, byte[] input) {
-				ClassReader reader = new ClassReader(input);
-				ClassWriter writer = new ClassWriter(0);
-				ClassVisitor classVisitor = AccessWidenerVisitor.createClassVisitor(Constants.ASM_VERSION, writer, accessWidener);
+	@Override
+	public Map<String, String> getClassFingerprints() {
+		String[] lines;
+
+		try (StringWriter writer = new StringWriter()) {
+			new AccessWidenerWriter(accessWidener).write(writer);
+			lines = writer.toString().split("\\R");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write access widener", e);
+		}
 
-				project.getLogger().lifecycle("Applying access widener to " + className);
+		// A class is transformed by the entries of its own nest, and by the class entries of any inner class it may reference
+		Map<String, List<String>> nestEntries = new HashMap<>();
+		List<String> innerClassEntries = new ArrayList<>();
 
-				reader.accept(classVisitor, 0);
-				return writer.toByteArray();
+		for (int i = 1; i < lines.length; i++) {
+			String[] split = lines[i].trim().split("\\s+");
+
+			if (split.length < 3) {
+				continue;
+			}
+
+			nestEntries.computeIfAbsent(getNest(split[2]), nest -> new ArrayList<>()).add(lines[i].trim());
+
+			if (split[1].equals("class") && split[2].contains("$")) {
+				innerClassEntries.add(lines[i].trim());
 			}
-		};
+		}
+
+		Collections.sort(innerClassEntries);
+		Map<String, String> fingerprints = new HashMap<>();
+
+		for (String target : accessWidener.getTargets()) {
+			String className = target.replace('.', '/');
+			List<String> entries = new ArrayList<>(nestEntries.getOrDefault(getNest(className), List.of()));
+			Collections.sort(entries);
+
+			Hasher hasher = Hashing.sha256().newHasher();
+			entries.forEach(entry -> hasher.putString(entry, StandardCharsets.UTF_8).putChar('\n'));
+			innerClassEntries.forEach(entry -> hasher.putString(entry, StandardCharsets.UTF_8).putChar('\n'));
+			fingerprints.put(className, hasher.hash().toString());
+		}
+
+		return fingerprints;
+	}
+
+	private static String getNest(String className) {
+		int index = className.indexOf('$');
+		return index == -1 ? className : className.substring(0, index);
+	}
+
+	@Override
+	public Map<String, byte[]> getResources() {
+		return Map.of("aw.sha256", inputHash);
 	}
 
 	//Called when remapping the mod
@@ -180,6 +217,12 @@ public class AccessWidenerJarProcessor implements JarProcessor {
 		return jsonObject.get("accessWidener").getAsString();
 	}
 
+	@Override
+	public String getFingerprint() {
+		// The mappings used to remap a non named access widener are part of the mapped jar key
+		return HashCode.fromBytes(inputHash).toString();
+	}
+
 	@Override
 	public boolean isInvalid(File file) {
 		byte[] hash = ZipUtil.unpackEntry(file, "aw.sha256");
@@ -0,0 +1,242 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.Checksum;
+
+/**
+ * A persistent index of the mod metadata of jars, so a jar is only opened the first time it is seen.
+ *
+ * <p>The metadata is stored in the user cache keyed by the hash of the jar.
+ */
+public final class ModMetadataIndex {
+	private static final Logger LOGGER = Logging.getLogger(ModMetadataIndex.class);
+
+	// Bump this when the content of the index entries changes
+	private static final int FORMAT_VERSION = 1;
+
+	// Daemon wide, avoids hashing unchanged jars on every build
+	private static final Map<Path, FileStamp> FILE_STAMPS = new ConcurrentHashMap<>();
+
+	private final Path store;
+
+	public ModMetadataIndex(Path store) {
+		this.store = store.resolve("v" + FORMAT_VERSION);
+	}
+
+	/**
+	 * Indexes the files in parallel, later lookups of these files don't need to open them.
+	 */
+	public void scan(Collection<File> files) {
+		files.parallelStream().forEach(this::get);
+	}
+
+	public ModMetadata get(File file) {
+		Path path = file.toPath().toAbsolutePath();
+
+		if (!Files.isRegularFile(path)) {
+			return ModMetadata.NONE;
+		}
+
+		long size = file.length();
+		long modified = file.lastModified();
+		FileStamp stamp = FILE_STAMPS.get(path);
+
+		if (stamp != null && stamp.size() == size && stamp.modified() == modified) {
+			return stamp.metadata();
+		}
+
+		Path entry = store.resolve(Checksum.sha256Hex(file) + ".json");
+		ModMetadata metadata = readEntry(entry);
+
+		if (metadata == null) {
+			try {
+				metadata = read(file);
+			} catch (ZipException e) {
+				// Same as before the index, anything that can't be opened as a jar is not a mod. Not cached, the file may be fixed later.
+				LOGGER.warn("Failed to open {} as a jar, it will not be remapped", file, e);
+				return ModMetadata.NONE;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read the mod metadata of " + file, e);
+			}
+
+			try {
+				write(entry, metadata);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to store the mod metadata of {}", file, e);
+			}
+		}
+
+		FILE_STAMPS.put(path, new FileStamp(size, modified, metadata));
+		return metadata;
+	}
+
+	/**
+	 * Returns the metadata of an index entry, or null when there is no entry or it can't be read.
+	 */
+	@Nullable
+	private static ModMetadata readEntry(Path entry) {
+		if (!Files.exists(entry)) {
+			return null;
+		}
+
+		try {
+			return ModMetadata.fromJson(LoomGradlePlugin.GSON.fromJson(Files.readString(entry, StandardCharsets.UTF_8), JsonObject.class));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Ignoring the corrupt mod metadata index entry {}", entry, e);
+			return null;
+		}
+	}
+
+	private static ModMetadata read(File file) throws IOException {
+		try (ZipFile zipFile = new ZipFile(file)) {
+			JsonObject installerJson = readJson(file, zipFile, "fabric-installer.json");
+			JsonObject modJson = readJson(file, zipFile, "fabric.mod.json");
+
+			if (modJson == null) {
+				return new ModMetadata(false, null, List.of(), installerJson);
+			}
+
+			try {
+				String accessWidener = modJson.has("accessWidener") ? modJson.get("accessWidener").getAsString() : null;
+				List<String> nestedJars = new ArrayList<>();
+
+				if (modJson.has("jars")) {
+					for (JsonElement jar : modJson.getAsJsonArray("jars")) {
+						nestedJars.add(jar.getAsJsonObject().get("file").getAsString());
+					}
+				}
+
+				return new ModMetadata(true, accessWidener, nestedJars, installerJson);
+			} catch (RuntimeException e) {
+				// A broken mod must not silently end up on the classpath without being remapped
+				throw new RuntimeException("Invalid fabric.mod.json in " + file, e);
+			}
+		}
+	}
+
+	@Nullable
+	private static JsonObject readJson(File file, ZipFile zipFile, String name) throws IOException {
+		ZipEntry entry = zipFile.getEntry(name);
+
+		if (entry == null) {
+			return null;
+		}
+
+		try (InputStream inputStream = zipFile.getInputStream(entry)) {
+			JsonObject json = LoomGradlePlugin.GSON.fromJson(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), JsonObject.class);
+
+			if (json == null) {
+				throw new JsonParseException("Empty file");
+			}
+
+			return json;
+		} catch (JsonParseException e) {
+			throw new RuntimeException("Failed to parse %s in %s".formatted(name, file), e);
+		}
+	}
+
+	private static void write(Path entry, ModMetadata metadata) throws IOException {
+		Files.createDirectories(entry.getParent());
+		Path tempEntry = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+
+		try {
+			Files.writeString(tempEntry, LoomGradlePlugin.GSON.toJson(metadata.toJson()), StandardCharsets.UTF_8);
+			Files.move(tempEntry, entry, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempEntry);
+		}
+	}
+
+	private record FileStamp(long size, long modified, ModMetadata metadata) {
+	}
+
+	/**
+	 * @param isMod whether the jar has a fabric.mod.json
+	 * @param accessWidener the path of the access widener of the mod, or null
+	 * @param nestedJars the paths of the jars nested in the mod
+	 * @param installerJson the content of the fabric-installer.json, or null
+	 */
+	public record ModMetadata(boolean isMod, @Nullable String accessWidener, List<String> nestedJars, @Nullable JsonObject installerJson) {
+		public static final ModMetadata NONE = new ModMetadata(false, null, List.of(), null);
+
+		private JsonObject toJson() {
+			JsonObject json = new JsonObject();
+			json.addProperty("isMod", isMod);
+
+			if (accessWidener != null) {
+				json.addProperty("accessWidener", accessWidener);
+			}
+
+			JsonArray jars = new JsonArray();
+			nestedJars.forEach(jars::add);
+			json.add("nestedJars", jars);
+
+			if (installerJson != null) {
+				json.add("installerJson", installerJson);
+			}
+
+			return json;
+		}
+
+		private static ModMetadata fromJson(JsonObject json) {
+			List<String> nestedJars = new ArrayList<>();
+			json.getAsJsonArray("nestedJars").forEach(jar -> nestedJars.add(jar.getAsString()));
+
+			return new ModMetadata(
+					json.get("isMod").getAsBoolean(),
+					json.has("accessWidener") ? json.get("accessWidener").getAsString() : null,
+					nestedJars,
+					json.has("installerJson") ? json.getAsJsonObject("installerJson") : null
+			);
+		}
+	}
+}
@@ -28,25 +28,24 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
+import java.util.Set;
 
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
 import org.objectweb.asm.commons.Remapper;
-import org.zeroturnaround.zip.ZipUtil;
-import org.zeroturnaround.zip.transform.StringZipEntryTransformer;
-import org.zeroturnaround.zip.transform.ZipEntryTransformerEntry;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
@@ -58,10 +57,12 @@ import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
 import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.ClasspathIndex;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.StreamingRemapper;
 import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
 import net.fabricmc.tinyremapper.InputTag;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public class ModProcessor {
@@ -71,18 +72,28 @@ public class ModProcessor {
 		}
 
 		ArrayList<ModDependencyInfo> remapList = new ArrayList<>();
+		// The same mod may be in more than one configuration, it is only remapped once
+		Set<File> remappedOutputs = new HashSet<>();
 
 		for (ModDependencyInfo info : processList) {
-			if (info.requiresRemapping()) {
+			String remapReason = info.getRemapReason();
+
+			if (remapReason != null && remappedOutputs.add(info.getRemappedOutput())) {
+				project.getLogger().info(":remapping {} because {}", info, remapReason);
+
 				if (info.getRemappedOutput().exists()) {
 					info.getRemappedOutput().delete();
 				}
 
-				remapList.add(info);
+				if (!useSharedRemappedOutput(project, info)) {
+					remapList.add(info);
+				}
 			}
 		}
 
-		remapJars(project, processList);
+		if (!remapList.isEmpty()) {
+			remapJars(project, remapList);
+		}
 
 		for (ModDependencyInfo info : processList) {
 			if (!info.getRemappedOutput().exists()) {
@@ -91,20 +102,82 @@ public class ModProcessor {
 		}
 
 		for (ModDependencyInfo info : remapList) {
-			stripNestedJars(info.getRemappedOutput());
+			addToSharedStore(info);
+		}
+	}
+
+	/**
+	 * Links the output of a mod to the entry of the shared store when there is one, returns false when the mod needs to be remapped.
+	 */
+	private static boolean useSharedRemappedOutput(Project project, ModDependencyInfo info) throws IOException {
+		File sharedOutput = info.getSharedRemappedOutput();
+
+		if (!sharedOutput.exists() || LoomGradlePlugin.refreshDeps) {
+			return false;
+		}
+
+		if (!isValidSharedOutput(sharedOutput.toPath())) {
+			project.getLogger().warn("Ignoring the invalid shared remapped output of {}, it will be remapped", info);
+			Files.deleteIfExists(sharedOutput.toPath());
+			return false;
 		}
+
+		project.getLogger().info(":using {} from the shared remapped mod store", info);
+
+		Path output = info.getRemappedOutput().toPath();
+		Files.createDirectories(output.getParent());
+
+		try {
+			// Remapped outputs are never modified in place, so the project can share the file of the store
+			Files.createLink(output, sharedOutput.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			Files.copy(sharedOutput.toPath(), output, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		info.finaliseRemapping();
+		return true;
 	}
 
-	private static void stripNestedJars(File file) {
-		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-		ZipUtil.transformEntries(file, new ZipEntryTransformerEntry[] {(new ZipEntryTransformerEntry("fabric.mod.json", new StringZipEntryTransformer() {
-			@Override
-			protected String transform(ZipEntry zipEntry, String input) {
-				JsonObject json = LoomGradlePlugin.GSON.fromJson(input, JsonObject.class);
-				json.remove("jars");
-				return LoomGradlePlugin.GSON.toJson(json);
+	private static void addToSharedStore(ModDependencyInfo info) throws IOException {
+		Path sharedOutput = info.getSharedRemappedOutput().toPath();
+		Files.createDirectories(sharedOutput.getParent());
+		Path tempOutput = Files.createTempFile(sharedOutput.getParent(), sharedOutput.getFileName().toString(), ".tmp");
+
+		try {
+			Files.copy(info.getRemappedOutput().toPath(), tempOutput, StandardCopyOption.REPLACE_EXISTING);
+
+			// The hash is written first, an entry without a matching hash is never used
+			Path hashFile = getSharedOutputHashFile(sharedOutput);
+			Path tempHashFile = Files.createTempFile(sharedOutput.getParent(), hashFile.getFileName().toString(), ".tmp");
+
+			try {
+				Files.writeString(tempHashFile, Checksum.sha256Hex(tempOutput.toFile()), StandardCharsets.UTF_8);
+				Files.move(tempHashFile, hashFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempHashFile);
 			}
-		}))});
+
+			Files.move(tempOutput, sharedOutput, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempOutput);
+		}
+	}
+
+	/**
+	 * Returns true when the entry of the shared store matches the hash that was stored with it, so a damaged entry is never linked into a project.
+	 */
+	private static boolean isValidSharedOutput(Path sharedOutput) throws IOException {
+		Path hashFile = getSharedOutputHashFile(sharedOutput);
+
+		if (!Files.exists(hashFile)) {
+			return false;
+		}
+
+		return Files.readString(hashFile, StandardCharsets.UTF_8).trim().equals(Checksum.sha256Hex(sharedOutput.toFile()));
+	}
+
+	private static Path getSharedOutputHashFile(Path sharedOutput) {
+		return sharedOutput.resolveSibling(sharedOutput.getFileName() + ".sha256");
 	}
 
 	private static byte[] remapAccessWidener(byte[] input, Remapper remapper) {
@@ -126,7 +199,7 @@ public class ModProcessor {
 		}
 	}
 
-	private static void remapJars(Project project, List<ModDependencyInfo> processList) throws IOException {
+	private static void remapJars(Project project, List<ModDependencyInfo> remapList) throws IOException {
 		LoomGradleExtension extension = LoomGradleExtension.get(project);
 		String fromM = "intermediary";
 		String toM = "named";
@@ -134,103 +207,102 @@ public class ModProcessor {
 		MinecraftMappedProvider mappedProvider = extension.getMinecraftMappedProvider();
 		MappingsProviderImpl mappingsProvider = extension.getMappingsProvider();
 
-		Path mc = mappedProvider.getIntermediaryJar().toPath();
-		Path[] mcDeps = project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles()
-							.stream().map(File::toPath).toArray(Path[]::new);
-
-		List<ModDependencyInfo> remapList = processList.stream().filter(ModDependencyInfo::requiresRemapping).collect(Collectors.toList());
+		ClasspathIndex classpathIndex = new ClasspathIndex(extension.getFiles().getClasspathIndexStore().toPath());
+		Path mc = classpathIndex.index(mappedProvider.getIntermediaryJar().toPath());
+		Path[] mcDeps = classpathIndex.index(project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles()
+							.stream().map(File::toPath).toArray(Path[]::new));
 
 		project.getLogger().lifecycle(":remapping " + remapList.size() + " mods (TinyRemapper, " + fromM + " -> " + toM + ")");
 
-		TinyRemapper remapper = TinyRemapper.newRemapper()
-						.withMappings(TinyRemapperMappingsHelper.create(mappingsProvider.getMappings(), fromM, toM, false))
-						.renameInvalidLocals(false)
-						.build();
-
-		remapper.readClassPathAsync(mc);
-		remapper.readClassPathAsync(mcDeps);
-
-		final Map<ModDependencyInfo, InputTag> tagMap = new HashMap<>();
-		final Map<ModDependencyInfo, OutputConsumerPath> outputConsumerMap = new HashMap<>();
-		final Map<ModDependencyInfo, byte[]> accessWidenerMap = new HashMap<>();
+		List<Path> modClasspath = new ArrayList<>();
 
 		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
 			for (File inputFile : project.getConfigurations().getByName(entry.sourceConfiguration()).getFiles()) {
 				if (remapList.stream().noneMatch(info -> info.getInputFile().equals(inputFile))) {
 					project.getLogger().debug("Adding " + inputFile + " onto the remap classpath");
 
-					remapper.readClassPathAsync(inputFile.toPath());
+					modClasspath.add(classpathIndex.index(inputFile.toPath()));
 				}
 			}
 		}
 
-		for (ModDependencyInfo info : remapList) {
-			InputTag tag = remapper.createInputTag();
-
-			project.getLogger().debug("Adding " + info.getInputFile() + " as a remap input");
-
-			remapper.readInputsAsync(tag, info.getInputFile().toPath());
-			tagMap.put(info, tag);
-		}
+		if (StreamingRemapper.isEnabled()) {
+			// The other mods being remapped are part of the hierarchy of each mod
+			List<Path> hierarchy = new ArrayList<>();
+			hierarchy.add(mc);
+			hierarchy.addAll(Arrays.asList(mcDeps));
+			hierarchy.addAll(modClasspath);
+			remapList.forEach(info -> hierarchy.add(classpathIndex.index(info.getInputFile().toPath())));
 
-		// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
-		for (ModDependencyInfo info : remapList) {
-			OutputConsumerPath outputConsumer;
+			StreamingRemapper streamingRemapper = new StreamingRemapper(() -> createRemapper(mappingsProvider, fromM, toM), hierarchy.toArray(Path[]::new));
 
-			try {
-				outputConsumer = new OutputConsumerPath.Builder(info.getRemappedOutput().toPath()).build();
-			} catch (Exception e) {
-				throw new IOException("Could not create output consumer for " + info.getRemappedOutput().getAbsolutePath());
+			for (ModDependencyInfo info : remapList) {
+				remapJarStreaming(streamingRemapper, info);
 			}
 
-			outputConsumer.addNonClassFiles(info.getInputFile().toPath());
-			outputConsumerMap.put(info, outputConsumer);
-			String accessWidener = info.getAccessWidener();
+			return;
+		}
 
-			if (accessWidener != null) {
-				accessWidenerMap.put(info, remapAccessWidener(ZipUtil.unpackEntry(info.inputFile, accessWidener), remapper.getRemapper()));
-			}
+		TinyRemapper remapper = createRemapper(mappingsProvider, fromM, toM);
 
-			remapper.apply(outputConsumer, tagMap.get(info));
-		}
+		remapper.readClassPathAsync(mc);
+		remapper.readClassPathAsync(mcDeps);
+		remapper.readClassPathAsync(modClasspath.toArray(Path[]::new));
 
-		remapper.finish();
+		final Map<ModDependencyInfo, InputTag> tagMap = new HashMap<>();
 
 		for (ModDependencyInfo info : remapList) {
-			outputConsumerMap.get(info).close();
-			byte[] accessWidener = accessWidenerMap.get(info);
+			InputTag tag = remapper.createInputTag();
 
-			if (accessWidener != null) {
-				ZipUtil.replaceEntry(info.getRemappedOutput(), info.getAccessWidener(), accessWidener);
-			}
+			project.getLogger().debug("Adding " + info.getInputFile() + " as a remap input");
 
-			info.finaliseRemapping();
+			remapper.readInputsAsync(tag, info.getInputFile().toPath());
+			tagMap.put(info, tag);
 		}
-	}
 
-	public static JsonObject readInstallerJson(File file, Project project) {
 		try {
-			LoomGradleExtension extension = LoomGradleExtension.get(project);
+			// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
+			for (ModDependencyInfo info : remapList) {
+				try (RemappedModWriter writer = new RemappedModWriter(info.getRemappedOutput().toPath())) {
+					writer.addNonClassFiles(info.getInputFile().toPath(), info.getAccessWidener(), accessWidener -> remapAccessWidener(accessWidener, remapper.getRemapper()));
+					remapper.apply(writer, tagMap.get(info));
+					writer.commit();
+				}
 
-			String jsonStr;
+				info.finaliseRemapping();
+			}
+		} finally {
+			remapper.finish();
+		}
+	}
 
-			try (JarFile jarFile = new JarFile(file)) {
-				ZipEntry entry = jarFile.getEntry("fabric-installer.json");
+	private static TinyRemapper createRemapper(MappingsProviderImpl mappingsProvider, String fromM, String toM) throws IOException {
+		return TinyRemapper.newRemapper()
+						.withMappings(TinyRemapperMappingsHelper.create(mappingsProvider.getMappings(), fromM, toM, false))
+						.renameInvalidLocals(false)
+						.build();
+	}
 
-				if (entry == null) {
-					return null;
-				}
+	private static void remapJarStreaming(StreamingRemapper streamingRemapper, ModDependencyInfo info) throws IOException {
+		String accessWidener = info.getAccessWidener();
 
-				try (InputStream inputstream = jarFile.getInputStream(entry)) {
-					jsonStr = new String(inputstream.readAllBytes(), StandardCharsets.UTF_8);
+		try (RemappedModWriter writer = new RemappedModWriter(info.getRemappedOutput().toPath())) {
+			// The access widener is remapped with the remapper of the first batch, the remapper is the same for every batch
+			streamingRemapper.remap(info.getInputFile().toPath(), writer, remapper -> {
+				try {
+					writer.addNonClassFiles(info.getInputFile().toPath(), accessWidener, bytes -> remapAccessWidener(bytes, remapper));
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to copy the files of " + info, e);
 				}
-			}
-
-			return LoomGradlePlugin.GSON.fromJson(jsonStr, JsonObject.class);
-		} catch (IOException e) {
-			e.printStackTrace();
+			});
+			writer.commit();
 		}
 
-		return null;
+		info.finaliseRemapping();
+	}
+
+	public static JsonObject readInstallerJson(File file, Project project) {
+		LoomGradleExtension extension = LoomGradleExtension.get(project);
+		return new ModMetadataIndex(extension.getFiles().getModMetadataStore().toPath()).get(file).installerJson();
 	}
 }
@@ -0,0 +1,155 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * Writes a remapped mod jar in a single pass, the remapped classes are accepted from the remapper
+ * and the edits to the non class files are applied while they are copied from the input.
+ *
+ * <p>The jar is written to a temporary file next to the output and only moved into place by {@link #commit()},
+ * closing the writer without committing deletes the partial jar.
+ */
+final class RemappedModWriter implements BiConsumer<String, byte[]>, Closeable {
+	private final Path output;
+	private final Path tempOutput;
+	private final ZipOutputStream out;
+	private boolean closed;
+
+	RemappedModWriter(Path output) throws IOException {
+		this.output = output.toAbsolutePath();
+		Files.createDirectories(this.output.getParent());
+		this.tempOutput = Files.createTempFile(this.output.getParent(), this.output.getFileName().toString(), ".tmp");
+		this.out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempOutput)));
+	}
+
+	/**
+	 * Copies the non class files of the input, with the nested jars stripped from the fabric.mod.json.
+	 *
+	 * @param accessWidenerPath the path of the access widener to remap while it is copied, or null
+	 */
+	void addNonClassFiles(Path input, @Nullable String accessWidenerPath, UnaryOperator<byte[]> accessWidenerRemapper) throws IOException {
+		try (ZipFile zipFile = new ZipFile(input.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+
+				if (name.endsWith(".class")) {
+					continue;
+				}
+
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					if (name.equals("fabric.mod.json")) {
+						write(name, stripNestedJars(inputStream.readAllBytes()));
+					} else if (name.equals(accessWidenerPath)) {
+						write(name, accessWidenerRemapper.apply(inputStream.readAllBytes()));
+					} else {
+						synchronized (out) {
+							out.putNextEntry(new ZipEntry(name));
+							inputStream.transferTo(out);
+							out.closeEntry();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void accept(String className, byte[] bytes) {
+		try {
+			write(className + ".class", bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write " + className, e);
+		}
+	}
+
+	private void write(String name, byte[] bytes) throws IOException {
+		// The remapper may hand over classes from several threads
+		synchronized (out) {
+			out.putNextEntry(new ZipEntry(name));
+			out.write(bytes);
+			out.closeEntry();
+		}
+	}
+
+	/**
+	 * Finishes the jar and moves it to the output.
+	 */
+	void commit() throws IOException {
+		synchronized (out) {
+			closed = true;
+			out.close();
+		}
+
+		Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (out) {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+		}
+
+		try {
+			out.close();
+		} finally {
+			Files.deleteIfExists(tempOutput);
+		}
+	}
+
+	private static byte[] stripNestedJars(byte[] modJson) {
+		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
+		JsonObject json = LoomGradlePlugin.GSON.fromJson(new String(modJson, StandardCharsets.UTF_8), JsonObject.class);
+		json.remove("jars");
+		return LoomGradlePlugin.GSON.toJson(json).getBytes(StandardCharsets.UTF_8);
+	}
+}
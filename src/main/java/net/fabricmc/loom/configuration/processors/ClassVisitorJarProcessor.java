@@ -0,0 +1,73 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * A {@link JarProcessor} that transforms classes through a {@link ClassVisitor}, allowing the {@link JarProcessorManager}
+ * to apply every processor in a single pass over the jar.
+ */
+public interface ClassVisitorJarProcessor extends JarProcessor {
+	/**
+	 * Return true when this processor transforms the class, classes that no processor transforms are copied as is.
+	 *
+	 * @param className the internal name of the class
+	 */
+	boolean transformsClass(String className);
+
+	/**
+	 * Returns the visitor that transforms the class before passing it on to the next visitor.
+	 *
+	 * @param className the internal name of the class
+	 */
+	ClassVisitor createClassVisitor(String className, ClassVisitor next);
+
+	/**
+	 * Returns the resources to add to the processed jar, replacing any existing entry with the same name.
+	 */
+	default Map<String, byte[]> getResources() {
+		return Map.of();
+	}
+
+	/**
+	 * Returns a fingerprint of what this processor does to each class it transforms, keyed by internal class name, or null when unknown.
+	 *
+	 * <p>When every processor provides them, a change to the processors only transforms the classes whose fingerprint changed again.
+	 * The map must contain every class this processor transforms.
+	 */
+	default Map<String, String> getClassFingerprints() {
+		return null;
+	}
+
+	@Override
+	default void process(File file) {
+		new JarProcessorManager(List.of(this)).process(file);
+	}
+}
@@ -38,4 +38,13 @@ public interface JarProcessor {
 	 * Return true to make all jar processors run again, return false to use the existing results of jar processing.
 	 */
 	boolean isInvalid(File file);
+
+	/**
+	 * Return a fingerprint of everything that affects the output of this processor, or null when the output can't be shared between projects.
+	 *
+	 * <p>Jars processed only by processors with a fingerprint are stored once in the user cache, keyed by the mapped jar and the fingerprints.
+	 */
+	default String getFingerprint() {
+		return null;
+	}
 }
@@ -24,8 +24,35 @@
 
 package net.fabricmc.loom.configuration.processors;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+import net.fabricmc.loom.util.ZipReprocessorUtil;
 
 public class JarProcessorManager {
 	private final List<JarProcessor> jarProcessors;
@@ -47,13 +74,277 @@ public class JarProcessorManager {
 			return true;
 		}
 
-		return jarProcessors.stream().anyMatch(jarProcessor -> jarProcessor.isInvalid(file));
+		// Processors with a fingerprint are checked against the sidecar file, instead of each one opening the jar
+		Properties fingerprints = readFingerprints(file);
+
+		for (JarProcessor jarProcessor : jarProcessors) {
+			String fingerprint = jarProcessor.getFingerprint();
+
+			if (fingerprint != null ? !fingerprint.equals(fingerprints.getProperty(jarProcessor.getClass().getName())) : jarProcessor.isInvalid(file)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Stores the fingerprint of each processor next to the processed jar, for {@link #isInvalid(File)}.
+	 */
+	public void writeFingerprints(File file) {
+		Properties fingerprints = new Properties();
+
+		for (JarProcessor jarProcessor : jarProcessors) {
+			String fingerprint = jarProcessor.getFingerprint();
+
+			if (fingerprint != null) {
+				fingerprints.setProperty(jarProcessor.getClass().getName(), fingerprint);
+			}
+		}
+
+		try (Writer writer = Files.newBufferedWriter(getFingerprintsFile(file), StandardCharsets.UTF_8)) {
+			fingerprints.store(writer, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write processor fingerprints of " + file.getName(), e);
+		}
+	}
+
+	private static Properties readFingerprints(File file) {
+		Properties fingerprints = new Properties();
+		Path fingerprintsFile = getFingerprintsFile(file);
+
+		if (Files.exists(fingerprintsFile)) {
+			try (Reader reader = Files.newBufferedReader(fingerprintsFile, StandardCharsets.UTF_8)) {
+				fingerprints.load(reader);
+			} catch (IOException e) {
+				// Unreadable fingerprints make the jar invalid
+				fingerprints.clear();
+			}
+		}
+
+		return fingerprints;
+	}
+
+	private static Path getFingerprintsFile(File file) {
+		return file.toPath().resolveSibling(file.getName() + ".processors");
+	}
+
+	/**
+	 * Returns the combined fingerprint of every processor, or null when any processor doesn't have one.
+	 */
+	public String getFingerprint() {
+		Hasher hasher = Hashing.sha256().newHasher();
+
+		for (JarProcessor jarProcessor : jarProcessors) {
+			String fingerprint = jarProcessor.getFingerprint();
+
+			if (fingerprint == null) {
+				return null;
+			}
+
+			hasher.putString(jarProcessor.getClass().getName(), StandardCharsets.UTF_8);
+			hasher.putString(fingerprint, StandardCharsets.UTF_8);
+		}
+
+		return hasher.hash().toString();
 	}
 
 	public void process(File file) {
+		process(file, file);
+	}
+
+	/**
+	 * Returns true when the output of every processor can be written as an overlay of only the transformed classes.
+	 */
+	public boolean supportsOverlay() {
+		return jarProcessors.stream().allMatch(jarProcessor -> jarProcessor instanceof ClassVisitorJarProcessor);
+	}
+
+	/**
+	 * Writes only the classes transformed by the processors and their resources to the output.
+	 */
+	public void processOverlay(File input, File output) {
+		if (!supportsOverlay()) {
+			throw new UnsupportedOperationException("Not every jar processor can be applied as an overlay");
+		}
+
+		List<ClassVisitorJarProcessor> processors = jarProcessors.stream().map(ClassVisitorJarProcessor.class::cast).toList();
+
+		try {
+			transform(input.toPath(), output.toPath(), processors, true, null, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to process " + input.getName(), e);
+		}
+	}
+
+	/**
+	 * Writes the processed input jar to the output, which may be the input itself.
+	 *
+	 * <p>All {@link ClassVisitorJarProcessor}s are applied in a single pass while the jar is copied,
+	 * any other processor then processes the output jar in place.
+	 */
+	public void process(File input, File output) {
+		List<ClassVisitorJarProcessor> classVisitorProcessors = new ArrayList<>();
+		List<JarProcessor> otherProcessors = new ArrayList<>();
+
 		for (JarProcessor jarProcessor : jarProcessors) {
-			jarProcessor.process(file);
+			if (jarProcessor instanceof ClassVisitorJarProcessor classVisitorProcessor) {
+				classVisitorProcessors.add(classVisitorProcessor);
+			} else {
+				otherProcessors.add(jarProcessor);
+			}
 		}
+
+		try {
+			transform(input.toPath(), output.toPath(), classVisitorProcessors, false, null, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to process " + input.getName(), e);
+		}
+
+		for (JarProcessor jarProcessor : otherProcessors) {
+			jarProcessor.process(output);
+		}
+	}
+
+	/**
+	 * Returns the fingerprint of the processing applied to each class, keyed by internal class name, or null when a processor doesn't provide them.
+	 */
+	public Map<String, String> getClassFingerprints() {
+		if (!supportsOverlay()) {
+			return null;
+		}
+
+		Map<String, String> fingerprints = new HashMap<>();
+
+		for (JarProcessor jarProcessor : jarProcessors) {
+			Map<String, String> processorFingerprints = ((ClassVisitorJarProcessor) jarProcessor).getClassFingerprints();
+
+			if (processorFingerprints == null) {
+				return null;
+			}
+
+			processorFingerprints.forEach((className, fingerprint) ->
+					fingerprints.merge(className, jarProcessor.getClass().getName() + ":" + fingerprint, (a, b) -> a + ";" + b)
+			);
+		}
+
+		return fingerprints;
+	}
+
+	/**
+	 * Processes the input like {@link #process(File, File)} or {@link #processOverlay(File, File)}, copying the transformed classes
+	 * whose fingerprint didn't change from a previous output instead of transforming them again.
+	 *
+	 * @param previous a previous output processed from the same input, or null
+	 * @return the fingerprints of the transformed classes, or null when the processors don't provide them
+	 */
+	public Map<String, String> process(File input, File output, boolean overlay, ProcessedJarState previous) {
+		Map<String, String> fingerprints = getClassFingerprints();
+
+		if (fingerprints == null) {
+			if (overlay) {
+				processOverlay(input, output);
+			} else {
+				process(input, output);
+			}
+
+			return null;
+		}
+
+		List<ClassVisitorJarProcessor> processors = jarProcessors.stream().map(ClassVisitorJarProcessor.class::cast).toList();
+
+		try {
+			transform(input.toPath(), output.toPath(), processors, overlay, previous, fingerprints);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to process " + input.getName(), e);
+		}
+
+		return fingerprints;
+	}
+
+	private static void transform(Path input, Path output, List<ClassVisitorJarProcessor> processors, boolean overlay, ProcessedJarState previous, Map<String, String> fingerprints) throws IOException {
+		Map<String, byte[]> resources = new LinkedHashMap<>();
+
+		for (ClassVisitorJarProcessor processor : processors) {
+			resources.putAll(processor.getResources());
+		}
+
+		Files.createDirectories(output.toAbsolutePath().getParent());
+		Path tempOutput = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".tmp");
+
+		try {
+			try (ZipFile zipFile = new ZipFile(input.toFile());
+					ZipFile previousJar = previous != null && fingerprints != null ? new ZipFile(previous.jar().toFile()) : null;
+					ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempOutput)))) {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+
+					if (resources.containsKey(entry.getName())) {
+						continue;
+					}
+
+					String className = !entry.isDirectory() && entry.getName().endsWith(".class") ? entry.getName().substring(0, entry.getName().length() - ".class".length()) : null;
+					List<ClassVisitorJarProcessor> classProcessors = className == null ? List.of() : processors.stream().filter(processor -> processor.transformsClass(className)).toList();
+
+					if (overlay && classProcessors.isEmpty()) {
+						// The overlay only holds what differs from the input
+						continue;
+					}
+
+					// Keep the time of the input entry so processing the same input twice gives the same jar
+					ZipEntry newEntry = new ZipEntry(entry.getName());
+					newEntry.setTime(entry.getTime());
+					out.putNextEntry(newEntry);
+					ZipEntry previousEntry = null;
+
+					if (previousJar != null && !classProcessors.isEmpty()) {
+						String fingerprint = fingerprints.get(className);
+
+						if (fingerprint != null && fingerprint.equals(previous.classes().get(className))) {
+							previousEntry = previousJar.getEntry(entry.getName());
+						}
+					}
+
+					try (InputStream inputStream = previousEntry != null ? previousJar.getInputStream(previousEntry) : zipFile.getInputStream(entry)) {
+						if (classProcessors.isEmpty() || previousEntry != null) {
+							inputStream.transferTo(out);
+						} else {
+							out.write(transformClass(className, inputStream.readAllBytes(), classProcessors));
+						}
+					}
+
+					out.closeEntry();
+				}
+
+				for (Map.Entry<String, byte[]> resource : resources.entrySet()) {
+					ZipEntry resourceEntry = new ZipEntry(resource.getKey());
+					resourceEntry.setTime(ZipReprocessorUtil.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+					out.putNextEntry(resourceEntry);
+					out.write(resource.getValue());
+					out.closeEntry();
+				}
+			}
+
+			Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempOutput);
+		}
+	}
+
+	private static byte[] transformClass(String className, byte[] input, List<ClassVisitorJarProcessor> processors) {
+		ClassReader reader = new ClassReader(input);
+		ClassWriter writer = new ClassWriter(0);
+		ClassVisitor classVisitor = writer;
+
+		// Build the chain backwards so the processors visit the class in order
+		for (int i = processors.size() - 1; i >= 0; i--) {
+			classVisitor = processors.get(i).createClassVisitor(className, classVisitor);
+		}
+
+		reader.accept(classVisitor, 0);
+		return writer.toByteArray();
 	}
 
 	public <T extends JarProcessor> T getByType(Class<T> tClass) {
@@ -26,20 +26,32 @@ package net.fabricmc.loom.configuration.processors;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import com.google.common.hash.Hashing;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 
 import net.fabricmc.loom.configuration.providers.MinecraftProviderImpl;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
+import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 
 public class MinecraftProcessedProvider extends MinecraftMappedProvider {
+	private static final String OVERLAY_PROPERTY = "fabric.loom.processedJarOverlay";
+
 	public final String projectMappedClassifier;
+	public final String projectOverlayClassifier;
 
 	private File projectMappedJar;
+	private File overlayJar;
 
 	private final JarProcessorManager jarProcessorManager;
 
@@ -48,25 +60,172 @@ public class MinecraftProcessedProvider extends MinecraftMappedProvider {
 		this.jarProcessorManager = jarProcessorManager;
 		this.projectMappedClassifier = "project-" + project.getPath().replace(':', '@')
 				+ "-mapped";
+		this.projectOverlayClassifier = "project-" + project.getPath().replace(':', '@')
+				+ "-overlay";
 	}
 
 	@Override
 	protected void addDependencies(DependencyInfo dependency, Consumer<Runnable> postPopulationScheduler) {
-		if (jarProcessorManager.isInvalid(projectMappedJar) || isRefreshDeps()) {
-			getProject().getLogger().info(":processing mapped jar");
-			invalidateJars();
+		boolean overlay = isOverlayEnabled();
+		String sharedClassifier = getSharedClassifier(overlay);
+		String classifier;
+		File processedJar;
+
+		if (sharedClassifier != null) {
+			// Identical processing of the same mapped jar is shared by every project on the machine
+			classifier = sharedClassifier;
+			processedJar = new File(getJarDirectory(getExtension().getFiles().getUserCache(), classifier), "minecraft-" + getJarVersionString(classifier) + ".jar");
+
+			if (!processedJar.exists() || isRefreshDeps()) {
+				getProject().getLogger().info(":processing mapped jar into the shared store");
+				processJar(processedJar, overlay);
+			}
+		} else {
+			classifier = overlay ? projectOverlayClassifier : projectMappedClassifier;
+			processedJar = getProjectJar(classifier, overlay);
+
+			if (jarProcessorManager.isInvalid(processedJar) || isRefreshDeps()) {
+				getProject().getLogger().info(":processing mapped jar");
+				invalidateJars();
+				processJar(processedJar, overlay);
+			}
+		}
+
+		if (overlay) {
+			if (sharedClassifier != null) {
+				// genSources line maps the overlay in place, so the project uses its own copy of the shared overlay
+				classifier = projectOverlayClassifier + sharedClassifier.substring(sharedClassifier.indexOf('-'));
+				overlayJar = getProjectJar(classifier, true);
+
+				if (!overlayJar.exists() || isRefreshDeps()) {
+					copyJar(processedJar, overlayJar);
+				}
+			} else {
+				overlayJar = processedJar;
+			}
+
+			// The overlay is its own module so it isn't replaced by the mapped jar during conflict resolution,
+			// it is added first so the processed classes come before the mapped jar that provides the rest
+			getProject().getDependencies().add(Constants.Configurations.MINECRAFT_NAMED,
+					getProject().getDependencies().module("net.minecraft:minecraft-overlay:" + getJarVersionString(classifier)));
+
+			projectMappedJar = super.getMappedJar();
+			super.addDependencies(dependency, postPopulationScheduler);
+		} else {
+			getProject().getDependencies().add(Constants.Configurations.MINECRAFT_NAMED,
+					getProject().getDependencies().module("net.minecraft:minecraft:" + getJarVersionString(classifier)));
+
+			projectMappedJar = processedJar;
+		}
+	}
+
+	private File getProjectJar(String classifier, boolean overlay) {
+		String name = overlay ? "minecraft-overlay-" : "minecraft-";
+		return new File(getJarDirectory(getExtension().getFiles().getRootProjectPersistentCache(), classifier), name + getJarVersionString(classifier) + ".jar");
+	}
+
+	private static void copyJar(File input, File output) {
+		try {
+			Files.createDirectories(output.getParentFile().toPath());
+			Path tempJar = Files.createTempFile(output.getParentFile().toPath(), output.getName(), ".tmp");
 
 			try {
-				FileUtils.copyFile(super.getMappedJar(), projectMappedJar);
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to copy source jar", e);
+				Files.copy(input.toPath(), tempJar, StandardCopyOption.REPLACE_EXISTING);
+				Files.move(tempJar, output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempJar);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to copy " + input.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns true when the processed classes should be stored in an overlay jar in front of the shared mapped jar, instead of a full copy of the mapped jar.
+	 *
+	 * <p>This is opt-in with the {@code fabric.loom.processedJarOverlay} system property, and requires every processor to be a {@link ClassVisitorJarProcessor}.
+	 */
+	private boolean isOverlayEnabled() {
+		return Boolean.getBoolean(OVERLAY_PROPERTY) && jarProcessorManager.supportsOverlay();
+	}
+
+	/**
+	 * Returns the classifier of the processed jar in the shared store, or null when the processors can't be shared.
+	 */
+	private String getSharedClassifier(boolean overlay) {
+		String fingerprint = jarProcessorManager.getFingerprint();
+
+		if (fingerprint == null) {
+			return null;
+		}
+
+		String key = Hashing.sha256().newHasher()
+				.putString(getMappedJarHash(), StandardCharsets.UTF_8)
+				.putString(fingerprint, StandardCharsets.UTF_8)
+				.hash().toString();
+		return (overlay ? "overlay-" : "processed-") + key.substring(0, 12);
+	}
+
+	/**
+	 * Returns the hash of the mapped jar, the hash is kept next to the jar to avoid hashing it on every build.
+	 */
+	private String getMappedJarHash() {
+		File mappedJar = super.getMappedJar();
+		Path hashFile = new File(mappedJar.getPath() + ".sha256").toPath();
+
+		try {
+			if (Files.exists(hashFile) && Files.getLastModifiedTime(hashFile).toMillis() >= mappedJar.lastModified()) {
+				return Files.readString(hashFile, StandardCharsets.UTF_8).trim();
 			}
 
-			jarProcessorManager.process(projectMappedJar);
+			String hash = Checksum.sha256Hex(mappedJar);
+			Files.writeString(hashFile, hash, StandardCharsets.UTF_8);
+			return hash;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to hash " + mappedJar, e);
 		}
+	}
+
+	private void processJar(File processedJar, boolean overlay) {
+		try {
+			Files.createDirectories(processedJar.getParentFile().toPath());
+			Path tempJar = Files.createTempFile(processedJar.getParentFile().toPath(), processedJar.getName(), ".tmp");
+
+			try {
+				// Reuse the classes of the previous processed jar of this project that are processed the same way
+				String inputHash = getMappedJarHash();
+				ProcessedJarState previous = isRefreshDeps() ? null : ProcessedJarState.read(getStateFile(), getStateRoot());
 
-		getProject().getDependencies().add(Constants.Configurations.MINECRAFT_NAMED,
-				getProject().getDependencies().module("net.minecraft:minecraft:" + getJarVersionString(projectMappedClassifier)));
+				if (previous != null && !previous.isUsableFor(inputHash)) {
+					previous = null;
+				}
+
+				Map<String, String> fingerprints = jarProcessorManager.process(super.getMappedJar(), tempJar.toFile(), overlay, previous);
+
+				// Other builds may be using the jar, only replace it once it is complete
+				Files.move(tempJar, processedJar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				jarProcessorManager.writeFingerprints(processedJar);
+
+				if (fingerprints != null) {
+					new ProcessedJarState(inputHash, processedJar.toPath(), fingerprints).write(getStateFile(), getStateRoot());
+				}
+			} finally {
+				Files.deleteIfExists(tempJar);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to process " + processedJar.getName(), e);
+		}
+	}
+
+	private Path getStateFile() {
+		return new File(getExtension().getFiles().getProjectPersistentCache(), "processed_jar.properties").toPath();
+	}
+
+	/**
+	 * Jars of the project are stored relative to the root project cache, so the state still applies when the project is moved.
+	 */
+	private Path getStateRoot() {
+		return getExtension().getFiles().getRootProjectPersistentCache().toPath();
 	}
 
 	private void invalidateJars() {
@@ -94,4 +253,13 @@ public class MinecraftProcessedProvider extends MinecraftMappedProvider {
 	public File getMappedJar() {
 		return projectMappedJar;
 	}
+
+	/**
+	 * Returns the jar of processed classes that is in front of {@link #getMappedJar()} on the classpath, or null when the mapped jar is processed as a whole.
+	 *
+	 * <p>The overlay jar belongs to this project, so it can be modified in place.
+	 */
+	public File getOverlayJar() {
+		return overlayJar;
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Describes a processed jar written for a project, so a later run can reuse the classes whose processing didn't change.
+ *
+ * @param input identifies the content of the jar that was processed
+ * @param jar the processed jar
+ * @param classes the fingerprint of the processing applied to each transformed class, keyed by internal class name
+ */
+public record ProcessedJarState(String input, Path jar, Map<String, String> classes) {
+	private static final String CLASS_PREFIX = "class.";
+
+	/**
+	 * Returns the state stored in the file, or null when there is none.
+	 *
+	 * @param root the directory relative jar paths are resolved against
+	 */
+	public static ProcessedJarState read(Path file, Path root) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+
+		Properties properties = new Properties();
+
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+
+		String input = properties.getProperty("input");
+		String jar = properties.getProperty("jar");
+
+		if (input == null || jar == null) {
+			return null;
+		}
+
+		Map<String, String> classes = new HashMap<>();
+
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(CLASS_PREFIX)) {
+				classes.put(key.substring(CLASS_PREFIX.length()), properties.getProperty(key));
+			}
+		}
+
+		return new ProcessedJarState(input, root.resolve(jar), classes);
+	}
+
+	/**
+	 * Stores the state in the file, a jar inside the root directory is stored relative to it so the state survives moving the root.
+	 */
+	public void write(Path file, Path root) throws IOException {
+		Path absoluteJar = jar.toAbsolutePath();
+		Path absoluteRoot = root.toAbsolutePath();
+
+		Properties properties = new Properties();
+		properties.setProperty("input", input);
+		properties.setProperty("jar", (absoluteJar.startsWith(absoluteRoot) ? absoluteRoot.relativize(absoluteJar) : absoluteJar).toString().replace('\\', '/'));
+		classes.forEach((className, fingerprint) -> properties.setProperty(CLASS_PREFIX + className, fingerprint));
+
+		Files.createDirectories(file.toAbsolutePath().getParent());
+
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+	}
+
+	/**
+	 * Returns true when the classes of the processed jar can be reused for the given input.
+	 */
+	public boolean isUsableFor(String input) {
+		return this.input.equals(input) && Files.exists(jar);
+	}
+}
@@ -25,21 +25,29 @@
 package net.fabricmc.loom.configuration.processors.dependency;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.Properties;
 
-import com.google.gson.JsonObject;
+import com.google.common.hash.Hashing;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.artifacts.Configuration;
 import org.jetbrains.annotations.Nullable;
 
-import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.configuration.mods.ModMetadataIndex.ModMetadata;
+import net.fabricmc.loom.util.Checksum;
 
 public class ModDependencyInfo {
+	// Bump this when the remapped output of a mod changes, to stop using the shared store entries of older versions
+	private static final int REMAP_VERSION = 1;
+
 	private final String group;
 	public final String name;
 	public final String version;
@@ -49,10 +57,12 @@ public class ModDependencyInfo {
 	public final Configuration targetConfig;
 
 	public final RemapData remapData;
+	private final ModMetadata metadata;
 
 	private boolean forceRemap = false;
+	private String inputHash;
 
-	public ModDependencyInfo(String group, String name, String version, @Nullable String classifier, File inputFile, Configuration targetConfig, RemapData remapData) {
+	public ModDependencyInfo(String group, String name, String version, @Nullable String classifier, File inputFile, Configuration targetConfig, RemapData remapData, ModMetadata metadata) {
 		this.group = group;
 		this.name = name;
 		this.version = version;
@@ -60,6 +70,7 @@ public class ModDependencyInfo {
 		this.inputFile = inputFile;
 		this.targetConfig = targetConfig;
 		this.remapData = remapData;
+		this.metadata = metadata;
 	}
 
 	public String getRemappedNotation() {
@@ -90,6 +101,26 @@ public class ModDependencyInfo {
 		return new File(getRemappedDir(), getRemappedFilename(false) + "-" + classifier + ".jar");
 	}
 
+	/**
+	 * Returns the entry of the shared store for this mod, keyed by the content of the mod and of the mappings.
+	 */
+	public File getSharedRemappedOutput() {
+		String key = Hashing.sha256().newHasher()
+				.putString(getInputHash(), StandardCharsets.UTF_8)
+				.putString(remapData.mappingsHash(), StandardCharsets.UTF_8)
+				.putInt(REMAP_VERSION)
+				.hash().toString();
+		return new File(remapData.sharedModStore(), key.substring(0, 2) + "/" + key + ".jar");
+	}
+
+	public String getInputHash() {
+		if (inputHash == null) {
+			inputHash = Checksum.sha256Hex(inputFile);
+		}
+
+		return inputHash;
+	}
+
 	private File getRemappedPom() {
 		return new File(getRemappedDir(), String.format("%s-%s", name, version) + ".pom");
 	}
@@ -107,12 +138,93 @@ public class ModDependencyInfo {
 	}
 
 	public boolean requiresRemapping() {
-		return !getRemappedOutput().exists() || inputFile.lastModified() <= 0 || inputFile.lastModified() > getRemappedOutput().lastModified() || forceRemap || !getRemappedPom().exists();
+		return getRemapReason() != null;
+	}
+
+	/**
+	 * Returns why the mod needs to be remapped, or null when the remapped output is up to date.
+	 *
+	 * <p>The remapped output is compared by content with a manifest written next to it, the input is only hashed when its size or timestamp changed.
+	 */
+	@Nullable
+	public String getRemapReason() {
+		if (forceRemap) {
+			return "remapping was forced";
+		}
+
+		if (!getRemappedOutput().exists() || !getRemappedPom().exists()) {
+			return "it has not been remapped yet";
+		}
+
+		Properties manifest = readManifest();
+
+		if (manifest == null) {
+			return "there is no remap manifest";
+		}
+
+		if (!String.valueOf(REMAP_VERSION).equals(manifest.getProperty("version"))) {
+			return "the remap version changed";
+		}
+
+		if (!remapData.mappingsHash().equals(manifest.getProperty("mappings"))) {
+			return "the mappings changed";
+		}
+
+		if (String.valueOf(inputFile.length()).equals(manifest.getProperty("inputSize"))
+				&& String.valueOf(inputFile.lastModified()).equals(manifest.getProperty("inputModified"))) {
+			return null;
+		}
+
+		if (!getInputHash().equals(manifest.getProperty("input"))) {
+			return "the input jar changed";
+		}
+
+		// Same content with a new timestamp, update the manifest so the input isn't hashed again next time
+		writeManifest();
+		return null;
 	}
 
 	public void finaliseRemapping() {
-		getRemappedOutput().setLastModified(inputFile.lastModified());
 		savePom();
+		writeManifest();
+	}
+
+	private File getManifestFile() {
+		return new File(getRemappedDir(), getRemappedFilename(true) + ".remap.properties");
+	}
+
+	@Nullable
+	private Properties readManifest() {
+		File manifestFile = getManifestFile();
+
+		if (!manifestFile.exists()) {
+			return null;
+		}
+
+		Properties manifest = new Properties();
+
+		try (Reader reader = new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+			manifest.load(reader);
+		} catch (IOException e) {
+			return null;
+		}
+
+		return manifest;
+	}
+
+	private void writeManifest() {
+		Properties manifest = new Properties();
+		manifest.setProperty("version", String.valueOf(REMAP_VERSION));
+		manifest.setProperty("mappings", remapData.mappingsHash());
+		manifest.setProperty("input", getInputHash());
+		manifest.setProperty("inputSize", String.valueOf(inputFile.length()));
+		manifest.setProperty("inputModified", String.valueOf(inputFile.lastModified()));
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(getManifestFile()), StandardCharsets.UTF_8)) {
+			manifest.store(writer, null);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write remap manifest", e);
+		}
 	}
 
 	private void savePom() {
@@ -147,23 +259,12 @@ public class ModDependencyInfo {
 		return classifier != null && !classifier.isEmpty();
 	}
 
-	public String getAccessWidener() throws IOException {
-		try (JarFile jarFile = new JarFile(getInputFile())) {
-			JarEntry modJsonEntry = jarFile.getJarEntry("fabric.mod.json");
-
-			if (modJsonEntry == null) {
-				return null;
-			}
-
-			try (InputStream inputStream = jarFile.getInputStream(modJsonEntry)) {
-				JsonObject json = LoomGradlePlugin.GSON.fromJson(new InputStreamReader(inputStream), JsonObject.class);
-
-				if (!json.has("accessWidener")) {
-					return null;
-				}
+	public ModMetadata getMetadata() {
+		return metadata;
+	}
 
-				return json.get("accessWidener").getAsString();
-			}
-		}
+	@Nullable
+	public String getAccessWidener() {
+		return metadata.accessWidener();
 	}
 }
@@ -26,5 +26,9 @@ package net.fabricmc.loom.configuration.processors.dependency;
 
 import java.io.File;
 
-public record RemapData(String mappingsSuffix, File modStore) {
+/**
+ * @param sharedModStore the user cache store of remapped mods, shared by every project
+ * @param mappingsHash the hash of the mappings the mods are remapped with
+ */
+public record RemapData(String mappingsSuffix, File modStore, File sharedModStore, String mappingsHash) {
 }
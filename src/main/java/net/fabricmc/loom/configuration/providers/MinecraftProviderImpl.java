@@ -30,6 +30,10 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import com.google.common.io.Files;
@@ -57,6 +61,7 @@ public class MinecraftProviderImpl extends DependencyProvider implements Minecra
 	private File minecraftClientJar;
 	private File minecraftServerJar;
 	private File minecraftMergedJar;
+	private boolean mergedJarUpToDate;
 	private File versionManifestJson;
 	private File experimentalVersionsJson;
 
@@ -97,18 +102,8 @@ public class MinecraftProviderImpl extends DependencyProvider implements Minecra
 		libraryProvider = new MinecraftLibraryProvider();
 		libraryProvider.provide(this, getProject());
 
-		if (!minecraftMergedJar.exists() || isRefreshDeps()) {
-			try {
-				mergeJars(getProject().getLogger());
-			} catch (Throwable e) {
-				HashedDownloadUtil.delete(minecraftClientJar);
-				HashedDownloadUtil.delete(minecraftServerJar);
-				minecraftMergedJar.delete();
-
-				getProject().getLogger().error("Could not merge JARs! Deleting source JARs - please re-run the command and move on.", e);
-				throw e;
-			}
-		}
+		// The merged jar is only created once a later step asks for it, see getMergedJar
+		mergedJarUpToDate = false;
 	}
 
 	private void initFiles() {
@@ -240,8 +235,33 @@ public class MinecraftProviderImpl extends DependencyProvider implements Minecra
 		MinecraftVersionMeta.Download client = versionInfo.download("client");
 		MinecraftVersionMeta.Download server = versionInfo.download("server");
 
-		HashedDownloadUtil.downloadIfInvalid(new URL(client.url()), minecraftClientJar, client.sha1(), logger, false);
-		HashedDownloadUtil.downloadIfInvalid(new URL(server.url()), minecraftServerJar, server.sha1(), logger, false);
+		// Download both jars at the same time, the merge needs both of them anyway
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<?> clientFuture = executor.submit(() -> {
+				HashedDownloadUtil.downloadIfInvalid(new URL(client.url()), minecraftClientJar, client.sha1(), logger, false);
+				return null;
+			});
+			Future<?> serverFuture = executor.submit(() -> {
+				HashedDownloadUtil.downloadIfInvalid(new URL(server.url()), minecraftServerJar, server.sha1(), logger, false);
+				return null;
+			});
+
+			clientFuture.get();
+			serverFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while downloading minecraft jars", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw new RuntimeException("Failed to download minecraft jars", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	private void mergeJars(Logger logger) throws IOException {
@@ -253,7 +273,29 @@ public class MinecraftProviderImpl extends DependencyProvider implements Minecra
 		}
 	}
 
+	/**
+	 * Returns the merged jar, merging the client and server jars first if needed.
+	 *
+	 * <p>The merged jar is only used as the input of the remap, so it is not written when the remapped jars are already up to date.
+	 */
 	public File getMergedJar() {
+		if (!mergedJarUpToDate) {
+			if (!minecraftMergedJar.exists() || isRefreshDeps()) {
+				try {
+					mergeJars(getProject().getLogger());
+				} catch (Throwable e) {
+					HashedDownloadUtil.delete(minecraftClientJar);
+					HashedDownloadUtil.delete(minecraftServerJar);
+					minecraftMergedJar.delete();
+
+					getProject().getLogger().error("Could not merge JARs! Deleting source JARs - please re-run the command and move on.", e);
+					throw new RuntimeException("Failed to merge minecraft jars", e);
+				}
+			}
+
+			mergedJarUpToDate = true;
+		}
+
 		return minecraftMergedJar;
 	}
 
@@ -0,0 +1,249 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.tree.MappingTree;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+
+/**
+ * Applies mappings keyed by one of the tree's destination namespaces directly onto the tree, without rebuilding the tree with a different source namespace.
+ *
+ * <p>Classes and members are looked up by their name in the lookup namespace, the visit is then forwarded using the tree's source names.
+ * Elements that are not already present in the tree (such as constructors or unobfuscated methods missing from intermediary) are added
+ * with the lookup name as their source name, and their descriptor mapped back to the tree's source names.
+ */
+public final class DstNamespaceLookupVisitor implements MappingVisitor {
+	private final MemoryMappingTree tree;
+	private final String lookupNamespace;
+	private final int lookupNamespaceId;
+
+	private final Map<String, MappingTree.ClassMapping> classes = new HashMap<>();
+	// Tree source name to lookup name, and back
+	private final Map<String, String> classNames = new HashMap<>();
+	private final Map<String, String> srcClassNames = new HashMap<>();
+
+	private int[] namespaceMap;
+	private Map<String, MappingTree.MemberMapping> currentMembers;
+
+	public DstNamespaceLookupVisitor(MemoryMappingTree tree, String lookupNamespace) {
+		this.tree = tree;
+		this.lookupNamespace = lookupNamespace;
+		this.lookupNamespaceId = tree.getDstNamespaces().indexOf(lookupNamespace);
+
+		if (lookupNamespaceId == -1) {
+			throw new IllegalArgumentException("Namespace %s is not a destination namespace of the mapping tree".formatted(lookupNamespace));
+		}
+
+		for (MappingTree.ClassMapping classMapping : tree.getClasses()) {
+			String name = getName(classMapping);
+			classes.put(name, classMapping);
+			classNames.put(classMapping.getSrcName(), name);
+			srcClassNames.put(name, classMapping.getSrcName());
+		}
+	}
+
+	@Override
+	public boolean visitHeader() {
+		return tree.visitHeader();
+	}
+
+	@Override
+	public void visitNamespaces(String srcNamespace, List<String> dstNamespaces) {
+		if (!srcNamespace.equals(lookupNamespace)) {
+			throw new UnsupportedOperationException("Expected source namespace %s but got %s".formatted(lookupNamespace, srcNamespace));
+		}
+
+		List<String> treeNamespaces = new ArrayList<>(tree.getDstNamespaces());
+		namespaceMap = new int[dstNamespaces.size()];
+
+		for (int i = 0; i < dstNamespaces.size(); i++) {
+			String namespace = dstNamespaces.get(i);
+
+			if (namespace.equals(tree.getSrcNamespace())) {
+				throw new UnsupportedOperationException("Cannot change the source names of the mapping tree (%s)".formatted(namespace));
+			}
+
+			int index = treeNamespaces.indexOf(namespace);
+
+			if (index == -1) {
+				index = treeNamespaces.size();
+				treeNamespaces.add(namespace);
+			}
+
+			namespaceMap[i] = index;
+		}
+
+		tree.visitNamespaces(tree.getSrcNamespace(), treeNamespaces);
+	}
+
+	@Override
+	public boolean visitContent() {
+		return tree.visitContent();
+	}
+
+	@Override
+	public boolean visitClass(String srcName) {
+		MappingTree.ClassMapping classMapping = classes.get(srcName);
+		currentMembers = new HashMap<>();
+
+		if (classMapping == null) {
+			return visitMissing(MappedElementKind.CLASS, tree.visitClass(srcName), srcName);
+		}
+
+		for (MappingTree.FieldMapping field : classMapping.getFields()) {
+			currentMembers.put(getMemberKey(getName(field), mapDesc(field.getSrcDesc(), classNames)), field);
+		}
+
+		for (MappingTree.MethodMapping method : classMapping.getMethods()) {
+			currentMembers.put(getMemberKey(getName(method), mapDesc(method.getSrcDesc(), classNames)), method);
+		}
+
+		return tree.visitClass(classMapping.getSrcName());
+	}
+
+	@Override
+	public boolean visitField(String srcName, String srcDesc) {
+		MappingTree.MemberMapping field = currentMembers.get(getMemberKey(srcName, srcDesc));
+
+		if (!(field instanceof MappingTree.FieldMapping)) {
+			return visitMissing(MappedElementKind.FIELD, tree.visitField(srcName, mapDesc(srcDesc, srcClassNames)), srcName);
+		}
+
+		return tree.visitField(field.getSrcName(), field.getSrcDesc());
+	}
+
+	@Override
+	public boolean visitMethod(String srcName, String srcDesc) {
+		MappingTree.MemberMapping method = currentMembers.get(getMemberKey(srcName, srcDesc));
+
+		if (!(method instanceof MappingTree.MethodMapping)) {
+			return visitMissing(MappedElementKind.METHOD, tree.visitMethod(srcName, mapDesc(srcDesc, srcClassNames)), srcName);
+		}
+
+		return tree.visitMethod(method.getSrcName(), method.getSrcDesc());
+	}
+
+	/**
+	 * Gives an element that was just added to the tree its name in the lookup namespace, so later layers and the final switch to named find it.
+	 */
+	private boolean visitMissing(MappedElementKind kind, boolean visit, String name) {
+		if (visit) {
+			tree.visitDstName(kind, lookupNamespaceId, name);
+		}
+
+		return visit;
+	}
+
+	@Override
+	public boolean visitMethodArg(int argPosition, int lvIndex, String srcName) {
+		// Arguments are identified by their position, the name in the lookup namespace becomes a destination name.
+		if (!tree.visitMethodArg(argPosition, lvIndex, null)) {
+			return false;
+		}
+
+		if (srcName != null) {
+			tree.visitDstName(MappedElementKind.METHOD_ARG, lookupNamespaceId, srcName);
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, String srcName) {
+		if (!tree.visitMethodVar(lvtRowIndex, lvIndex, startOpIdx, null)) {
+			return false;
+		}
+
+		if (srcName != null) {
+			tree.visitDstName(MappedElementKind.METHOD_VAR, lookupNamespaceId, srcName);
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean visitEnd() {
+		return tree.visitEnd();
+	}
+
+	@Override
+	public void visitDstName(MappedElementKind targetKind, int namespace, String name) {
+		tree.visitDstName(targetKind, namespaceMap[namespace], name);
+	}
+
+	@Override
+	public void visitDstDesc(MappedElementKind targetKind, int namespace, String desc) {
+		tree.visitDstDesc(targetKind, namespaceMap[namespace], desc);
+	}
+
+	@Override
+	public boolean visitElementContent(MappedElementKind targetKind) {
+		return tree.visitElementContent(targetKind);
+	}
+
+	@Override
+	public void visitComment(MappedElementKind targetKind, String comment) {
+		tree.visitComment(targetKind, comment);
+	}
+
+	private String getName(MappingTree.ElementMapping mapping) {
+		String name = mapping.getDstName(lookupNamespaceId);
+		return name != null ? name : mapping.getSrcName();
+	}
+
+	private static String getMemberKey(String name, String desc) {
+		return name + desc;
+	}
+
+	private static String mapDesc(String desc, Map<String, String> classNames) {
+		if (desc == null || desc.indexOf('L') == -1) {
+			return desc;
+		}
+
+		StringBuilder builder = new StringBuilder(desc.length());
+		int start = 0;
+		int classStart;
+
+		while ((classStart = desc.indexOf('L', start)) != -1) {
+			int classEnd = desc.indexOf(';', classStart);
+			builder.append(desc, start, classStart + 1);
+
+			String className = desc.substring(classStart + 1, classEnd);
+			builder.append(classNames.getOrDefault(className, className));
+
+			start = classEnd;
+		}
+
+		builder.append(desc, start, desc.length());
+		return builder.toString();
+	}
+}
@@ -31,7 +31,9 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -56,6 +58,9 @@ public class LayeredMappingsDependency implements SelfResolvingDependency {
 	private final LayeredMappingSpec layeredMappingSpec;
 	private final String version;
 
+	private String fingerprint;
+	private File resolvedFile;
+
 	public LayeredMappingsDependency(MappingContext mappingContext, LayeredMappingSpec layeredMappingSpec, String version) {
 		this.mappingContext = mappingContext;
 		this.layeredMappingSpec = layeredMappingSpec;
@@ -64,33 +69,63 @@ public class LayeredMappingsDependency implements SelfResolvingDependency {
 
 	@Override
 	public Set<File> resolve() {
-		Path mappingsDir = mappingContext.mappingsProvider().getMappingsDir();
-		Path mappingsFile = mappingsDir.resolve(String.format("%s.%s-%s.tiny", GROUP, MODULE, getVersion()));
+		if (resolvedFile != null) {
+			return Collections.singleton(resolvedFile);
+		}
 
-		if (!Files.exists(mappingsFile) || LoomGradlePlugin.refreshDeps) {
-			try {
-				var processor = new LayeredMappingsProcessor(layeredMappingSpec);
-				MemoryMappingTree mappings = processor.getMappings(mappingContext);
+		try {
+			var processor = new LayeredMappingsProcessor(layeredMappingSpec);
+			List<MappingLayer> layers = processor.createLayers(mappingContext);
+			fingerprint = processor.getFingerprint(layers).substring(0, 12);
+
+			// The fingerprint is part of the file name, so everything derived from the mappings is rebuilt when a layer input changes
+			Path mappingsDir = mappingContext.mappingsProvider().getMappingsDir();
+			Path mappingsFile = mappingsDir.resolve(String.format("%s.%s-%s.tiny", GROUP, MODULE, getResolvedVersion()));
 
-				try (Writer writer = new StringWriter()) {
-					Tiny2Writer tiny2Writer = new Tiny2Writer(writer, false);
+			if (LoomGradlePlugin.refreshDeps || !Files.exists(mappingsFile)) {
+				mappingContext.getLogger().info(":building layered mappings ({})", getResolvedVersion());
+				writeMappings(processor.getMappings(layers), mappingsFile);
+			}
 
-					MappingDstNsReorder nsReorder = new MappingDstNsReorder(tiny2Writer, Collections.singletonList(MappingNamespace.NAMED.stringValue()));
-					MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(nsReorder, MappingNamespace.INTERMEDIARY.stringValue());
-					mappings.accept(nsSwitch);
+			resolvedFile = mappingsFile.toFile();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to resolve layered mappings", e);
+		}
 
-					Files.deleteIfExists(mappingsFile);
+		return Collections.singleton(resolvedFile);
+	}
 
-					ZipUtil.pack(new ZipEntrySource[] {
-							new ByteSource("mappings/mappings.tiny", writer.toString().getBytes(StandardCharsets.UTF_8))
-					}, mappingsFile.toFile());
-				}
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to resolve Mojang mappings", e);
-			}
+	/**
+	 * Returns the version followed by the fingerprint of the layer inputs, unlike {@link #getVersion()} it changes when any of the inputs change.
+	 */
+	public String getResolvedVersion() {
+		if (fingerprint == null) {
+			resolve();
 		}
 
-		return Collections.singleton(mappingsFile.toFile());
+		return getVersion() + "-" + fingerprint;
+	}
+
+	private static void writeMappings(MemoryMappingTree mappings, Path mappingsFile) throws IOException {
+		try (Writer writer = new StringWriter()) {
+			Tiny2Writer tiny2Writer = new Tiny2Writer(writer, false);
+
+			MappingDstNsReorder nsReorder = new MappingDstNsReorder(tiny2Writer, Collections.singletonList(MappingNamespace.NAMED.stringValue()));
+			MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(nsReorder, MappingNamespace.INTERMEDIARY.stringValue());
+			mappings.accept(nsSwitch);
+
+			Files.createDirectories(mappingsFile.getParent());
+			Path tempFile = Files.createTempFile(mappingsFile.getParent(), mappingsFile.getFileName().toString(), ".tmp");
+
+			try {
+				ZipUtil.pack(new ZipEntrySource[] {
+						new ByteSource("mappings/mappings.tiny", writer.toString().getBytes(StandardCharsets.UTF_8))
+				}, tempFile.toFile());
+				Files.move(tempFile, mappingsFile, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		}
 	}
 
 	@Override
@@ -25,13 +25,22 @@
 package net.fabricmc.loom.configuration.providers.mappings;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.fabricmc.mappingio.MappingVisitor;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public class LayeredMappingsProcessor {
+	// Bump this when the output of the processor changes for the same inputs
+	private static final int FINGERPRINT_VERSION = 1;
+
 	private final LayeredMappingSpec layeredMappingSpec;
 
 	public LayeredMappingsProcessor(LayeredMappingSpec spec) {
@@ -39,8 +48,11 @@ public class LayeredMappingsProcessor {
 	}
 
 	public MemoryMappingTree getMappings(MappingContext context) throws IOException {
-		MemoryMappingTree mappingTree = new MemoryMappingTree();
+		return getMappings(createLayers(context));
+	}
 
+	public List<MappingLayer> createLayers(MappingContext context) {
+		List<MappingLayer> layers = new ArrayList<>();
 		List<Class<? extends MappingLayer>> visitedLayers = new ArrayList<>();
 
 		for (MappingsSpec<?> spec : layeredMappingSpec.layers()) {
@@ -53,37 +65,56 @@ public class LayeredMappingsProcessor {
 			}
 
 			visitedLayers.add(layer.getClass());
+			layers.add(layer);
+		}
 
-			// We have to rebuild a new tree to work on when a layer doesnt merge into layered
-			boolean rebuild = layer.getSourceNamespace() != MappingNamespace.NAMED;
-			MemoryMappingTree workingTree;
+		return Collections.unmodifiableList(layers);
+	}
 
-			if (rebuild) {
-				var tempTree = new MemoryMappingTree();
+	/**
+	 * Returns a hash of the inputs of every layer, in order. Layered mappings built from layers with the same fingerprint are identical.
+	 */
+	public String getFingerprint(List<MappingLayer> layers) throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FINGERPRINT_VERSION);
 
-				// This can be null on the first layer
-				if (mappingTree.getSrcNamespace() != null) {
-					var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().stringValue());
-					mappingTree.accept(sourceNsSwitch);
-				}
+		for (MappingLayer layer : layers) {
+			hasher.putString(layer.getClass().getName(), StandardCharsets.UTF_8);
+			hasher.putString(layer.getFingerprint(), StandardCharsets.UTF_8);
+		}
 
-				workingTree = tempTree;
+		return hasher.hash().toString();
+	}
+
+	public MemoryMappingTree getMappings(List<MappingLayer> layers) throws IOException {
+		MemoryMappingTree mappingTree = new MemoryMappingTree();
+
+		for (MappingLayer layer : layers) {
+			// Layers keyed by the tree's source namespace (or the first layer) are visited directly, others are applied through lookups
+			// by their namespace. This keeps a single tree instead of rebuilding it for every layer with a different source namespace.
+			String sourceNamespace = layer.getSourceNamespace().stringValue();
+			MappingVisitor visitor;
+
+			if (mappingTree.getSrcNamespace() == null || mappingTree.getSrcNamespace().equals(sourceNamespace)) {
+				visitor = mappingTree;
 			} else {
-				workingTree = mappingTree;
+				visitor = new DstNamespaceLookupVisitor(mappingTree, sourceNamespace);
 			}
 
 			try {
-				layer.visit(workingTree);
+				layer.visit(visitor);
 			} catch (IOException e) {
 				throw new IOException("Failed to visit: " + layer.getClass(), e);
 			}
+		}
 
-			if (rebuild) {
-				mappingTree = new MemoryMappingTree();
-				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingNamespace.NAMED.stringValue()));
-			}
+		if (MappingNamespace.NAMED.stringValue().equals(mappingTree.getSrcNamespace())) {
+			return mappingTree;
 		}
 
-		return mappingTree;
+		// Switch to named as the source namespace once all the layers have been applied
+		MemoryMappingTree namedTree = new MemoryMappingTree();
+		mappingTree.accept(new MappingSourceNsSwitch(namedTree, MappingNamespace.NAMED.stringValue()));
+		return namedTree;
 	}
 }
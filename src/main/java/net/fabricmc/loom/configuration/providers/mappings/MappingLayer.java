@@ -33,6 +33,11 @@ import net.fabricmc.mappingio.MappingVisitor;
 public interface MappingLayer {
 	void visit(MappingVisitor mappingVisitor) throws IOException;
 
+	/**
+	 * Returns a string identifying all of the inputs of this layer, the layered mappings are only rebuilt when this changes.
+	 */
+	String getFingerprint() throws IOException;
+
 	default MappingNamespace getSourceNamespace() {
 		return MappingNamespace.NAMED;
 	}
@@ -24,46 +24,194 @@
 
 package net.fabricmc.loom.configuration.providers.mappings;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import net.fabricmc.loom.util.StaticPathWatcher;
-import net.fabricmc.mapping.tree.TinyMappingFactory;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import net.fabricmc.loom.configuration.providers.mappings.binary.BinaryMappings;
+import net.fabricmc.loom.configuration.providers.mappings.binary.MappedTinyTree;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.MethodDef;
 import net.fabricmc.mapping.tree.TinyTree;
 
+/**
+ * A daemon wide cache of parsed mappings, keyed by the content hash of the mappings file so that every project using the same mappings shares one tree.
+ *
+ * <p>The cache is bounded by the estimated heap size of the trees, the least recently used trees are evicted first.
+ * Memory mapped trees are charged for the few objects they keep on the heap rather than the size of the mappings file, a tree parsed from the tiny file is charged per element.
+ * The budget in megabytes can be set with the {@code fabric.loom.mappingsCacheSize} system property, it defaults to a quarter of the max heap size.
+ */
 public final class MappingsCache {
-	public static final MappingsCache INSTANCE = new MappingsCache();
+	private static final Logger LOGGER = Logging.getLogger(MappingsCache.class);
+	private static final String CACHE_SIZE_PROPERTY = "fabric.loom.mappingsCacheSize";
+
+	public static final MappingsCache INSTANCE = new MappingsCache(getDefaultMaxSize());
+
+	private final long maxSize;
+
+	// Guarded by this, iteration order is least recently used first
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long currentSize = 0;
+
+	private final Map<Path, FileStamp> fileStamps = new ConcurrentHashMap<>();
 
-	private final Map<Path, SoftReference<TinyTree>> mappingsCache = new HashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public MappingsCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	private static long getDefaultMaxSize() {
+		String property = System.getProperty(CACHE_SIZE_PROPERTY);
+
+		if (property != null) {
+			return Long.parseLong(property) * 1024 * 1024;
+		}
+
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
 
-	// TODO: loom doesn't actually use new mappings when the mappings change until the gradle daemons are stopped
 	public TinyTree get(Path mappingsPath) throws IOException {
 		mappingsPath = mappingsPath.toAbsolutePath();
+		FileStamp stamp = getFileStamp(mappingsPath);
 
-		if (StaticPathWatcher.INSTANCE.hasFileChanged(mappingsPath)) {
-			mappingsCache.remove(mappingsPath);
+		Entry entry;
+
+		synchronized (this) {
+			entry = entries.get(stamp.hash());
+
+			if (entry == null) {
+				entry = new Entry();
+				entries.put(stamp.hash(), entry);
+				misses.incrementAndGet();
+			} else {
+				hits.incrementAndGet();
+			}
+		}
+
+		// Load outside of the cache lock, other threads requesting the same mappings wait for this load instead of parsing them again.
+		TinyTree mappings = entry.get(mappingsPath);
+		onLoaded(stamp.hash(), entry);
+		return mappings;
+	}
+
+	private synchronized void onLoaded(String hash, Entry loaded) {
+		if (loaded.accounted || entries.get(hash) != loaded) {
+			return;
 		}
 
-		SoftReference<TinyTree> ref = mappingsCache.get(mappingsPath);
+		loaded.accounted = true;
+		currentSize += loaded.size;
 
-		if (ref != null && ref.get() != null) {
-			return ref.get();
-		} else {
-			try (BufferedReader reader = Files.newBufferedReader(mappingsPath)) {
-				TinyTree mappings = TinyMappingFactory.loadWithDetection(reader);
-				ref = new SoftReference<>(mappings);
-				mappingsCache.put(mappingsPath, ref);
-				return mappings;
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+		while (currentSize > maxSize && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+
+			// Never evict the mappings that were just requested, or ones still being loaded
+			if (eldest.getValue() == loaded || !eldest.getValue().accounted) {
+				continue;
 			}
+
+			iterator.remove();
+			currentSize -= eldest.getValue().size;
+			evictions.incrementAndGet();
+			LOGGER.info("Evicted mappings {} from the mappings cache ({})", eldest.getKey(), getStatistics());
 		}
 	}
 
-	public void invalidate() {
-		mappingsCache.clear();
+	/**
+	 * Returns a rough estimate of the heap used by the given tree.
+	 */
+	public static long estimateHeapSize(TinyTree mappings) {
+		if (mappings instanceof MappedTinyTree mappedTree) {
+			return mappedTree.estimateHeapSize();
+		}
+
+		// A parsed tree holds an object, a name map and a string per namespace for every element
+		long perElement = 64 + mappings.getMetadata().getNamespaces().size() * 56L;
+		long elements = 0;
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			elements += 1 + classDef.getFields().size();
+
+			for (MethodDef methodDef : classDef.getMethods()) {
+				elements += 1 + methodDef.getParameters().size() + methodDef.getLocalVariables().size();
+			}
+		}
+
+		return elements * perElement;
+	}
+
+	/**
+	 * Returns the sha256 of the mappings file, it is only recalculated when the size or modification time of the file changes.
+	 */
+	public String getHash(Path mappingsPath) throws IOException {
+		return getFileStamp(mappingsPath.toAbsolutePath()).hash();
+	}
+
+	/**
+	 * The content hash is only recalculated when the size or modification time of the file changes.
+	 */
+	private FileStamp getFileStamp(Path mappingsPath) throws IOException {
+		long size = Files.size(mappingsPath);
+		long modified = Files.getLastModifiedTime(mappingsPath).toMillis();
+		FileStamp stamp = fileStamps.get(mappingsPath);
+
+		if (stamp == null || stamp.size() != size || stamp.modified() != modified) {
+			stamp = new FileStamp(size, modified, Checksum.sha256Hex(mappingsPath.toFile()));
+			fileStamps.put(mappingsPath, stamp);
+		}
+
+		return stamp;
+	}
+
+	public synchronized void invalidate() {
+		entries.clear();
+		fileStamps.clear();
+		currentSize = 0;
+	}
+
+	public synchronized Statistics getStatistics() {
+		return new Statistics(hits.get(), misses.get(), evictions.get(), entries.size(), currentSize);
+	}
+
+	public record Statistics(long hits, long misses, long evictions, int entries, long size) {
+		@Override
+		public String toString() {
+			return "hits: %d, misses: %d, evictions: %d, entries: %d, size: %d KiB".formatted(hits, misses, evictions, entries, size / 1024);
+		}
+	}
+
+	private record FileStamp(long size, long modified, String hash) {
+	}
+
+	private static final class Entry {
+		private TinyTree mappings;
+		// Set once the mappings are loaded, read by the threads that have loaded the entry
+		private long size;
+		// Guarded by MappingsCache.this
+		private boolean accounted = false;
+
+		private synchronized TinyTree get(Path mappingsPath) throws IOException {
+			if (mappings == null) {
+				mappings = BinaryMappings.read(mappingsPath);
+				size = estimateHeapSize(mappings);
+				LOGGER.info("Loaded mappings {} into the mappings cache (about {} KiB)", mappingsPath, size / 1024);
+			}
+
+			return mappings;
+		}
 	}
 }
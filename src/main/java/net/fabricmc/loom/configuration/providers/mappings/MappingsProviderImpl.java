@@ -25,15 +25,17 @@
 package net.fabricmc.loom.configuration.providers.mappings;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.function.Consumer;
 
 import com.google.common.base.Preconditions;
@@ -53,16 +55,20 @@ import net.fabricmc.loom.configuration.accesswidener.AccessWidenerJarProcessor;
 import net.fabricmc.loom.configuration.processors.JarProcessorManager;
 import net.fabricmc.loom.configuration.processors.MinecraftProcessedProvider;
 import net.fabricmc.loom.configuration.providers.MinecraftProviderImpl;
+import net.fabricmc.loom.configuration.providers.mappings.binary.BinaryMappings;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.DeletingFileVisitor;
 import net.fabricmc.loom.util.DownloadUtil;
 import net.fabricmc.mapping.reader.v2.TinyV2Factory;
 import net.fabricmc.mapping.tree.TinyTree;
+import net.fabricmc.mappingio.adapter.MappingNsCompleter;
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.format.Tiny2Reader;
+import net.fabricmc.mappingio.format.Tiny2Writer;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.stitch.Command;
 import net.fabricmc.stitch.commands.CommandProposeFieldNames;
-import net.fabricmc.stitch.commands.tinyv2.CommandMergeTinyV2;
-import net.fabricmc.stitch.commands.tinyv2.CommandReorderTinyV2;
 
 public class MappingsProviderImpl extends DependencyProvider implements MappingsProvider {
 	public MinecraftMappedProvider mappedProvider;
@@ -87,6 +93,7 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 	public MappingsProviderImpl(Project project) {
 		super(project);
 		mappingsDir = getDirectories().getUserCache().toPath().resolve("mappings");
+		// No longer used, only kept to clean up old caches
 		mappingsStepsDir = mappingsDir.resolve("steps");
 	}
 
@@ -104,7 +111,8 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 
 		getProject().getLogger().info(":setting up mappings (" + dependency.getDependency().getName() + " " + dependency.getResolvedVersion() + ")");
 
-		String version = dependency.getResolvedVersion();
+		// Layered mappings are versioned by their spec, the resolved version also changes with the content of the layers
+		String version = dependency.getDependency() instanceof LayeredMappingsDependency layeredMappings ? layeredMappings.getResolvedVersion() : dependency.getResolvedVersion();
 		File mappingsJar = dependency.resolveFile().orElseThrow(() -> new RuntimeException("Could not find yarn mappings: " + dependency));
 
 		this.mappingsName = StringUtils.removeSuffix(dependency.getDependency().getGroup() + "." + dependency.getDependency().getName(), "-unmerged");
@@ -137,7 +145,6 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 		}
 
 		Files.createDirectories(mappingsDir);
-		Files.createDirectories(mappingsStepsDir);
 
 		String[] depStringSplit = dependency.getDepString().split(":");
 		String jarClassifier = "final";
@@ -206,7 +213,7 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 
 		if (baseMappingsAreV2()) {
 			// These are unmerged v2 mappings
-			mergeAndSaveMappings(project, yarnJar);
+			mergeAndSaveMappings(project, baseTinyMappings);
 		} else {
 			// These are merged v1 mappings
 			if (tinyMappings.exists()) {
@@ -285,41 +292,27 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 		}
 	}
 
-	private void mergeAndSaveMappings(Project project, Path unmergedYarnJar) throws IOException {
-		Path unmergedYarn = Paths.get(mappingsStepsDir.toString(), "unmerged-yarn.tiny");
-		project.getLogger().info(":extracting " + unmergedYarnJar.getFileName());
+	private void mergeAndSaveMappings(Project project, Path unmergedYarn) throws IOException {
+		project.getLogger().info(":merging");
 
-		try (FileSystem unmergedYarnJarFs = FileSystems.newFileSystem(unmergedYarnJar, (ClassLoader) null)) {
-			extractMappings(unmergedYarnJarFs, unmergedYarn);
-		}
+		// Build intermediary -> official, named in memory
+		MemoryMappingTree intermediaryTree = new MemoryMappingTree();
 
-		Path invertedIntermediary = Paths.get(mappingsStepsDir.toString(), "inverted-intermediary.tiny");
-		reorderMappings(getIntermediaryTiny(), invertedIntermediary, "intermediary", "official");
-		Path unorderedMergedMappings = Paths.get(mappingsStepsDir.toString(), "unordered-merged.tiny");
-		project.getLogger().info(":merging");
-		mergeMappings(invertedIntermediary, unmergedYarn, unorderedMergedMappings);
-		reorderMappings(unorderedMergedMappings, tinyMappings.toPath(), "official", "intermediary", "named");
-	}
+		try (BufferedReader reader = Files.newBufferedReader(getIntermediaryTiny(), StandardCharsets.UTF_8)) {
+			Tiny2Reader.read(reader, new MappingSourceNsSwitch(intermediaryTree, MappingNamespace.INTERMEDIARY.stringValue()));
+		}
 
-	private void reorderMappings(Path oldMappings, Path newMappings, String... newOrder) {
-		Command command = new CommandReorderTinyV2();
-		String[] args = new String[2 + newOrder.length];
-		args[0] = oldMappings.toAbsolutePath().toString();
-		args[1] = newMappings.toAbsolutePath().toString();
-		System.arraycopy(newOrder, 0, args, 2, newOrder.length);
-		runCommand(command, args);
-	}
+		try (BufferedReader reader = Files.newBufferedReader(unmergedYarn, StandardCharsets.UTF_8)) {
+			Tiny2Reader.read(reader, intermediaryTree);
+		}
 
-	private void mergeMappings(Path intermediaryMappings, Path yarnMappings, Path newMergedMappings) {
-		try {
-			Command command = new CommandMergeTinyV2();
-			runCommand(command, intermediaryMappings.toAbsolutePath().toString(),
-							yarnMappings.toAbsolutePath().toString(),
-							newMergedMappings.toAbsolutePath().toString(),
-							"intermediary", "official");
-		} catch (Exception e) {
-			throw new RuntimeException("Could not merge mappings from " + intermediaryMappings.toString()
-							+ " with mappings from " + yarnMappings, e);
+		// Write official -> intermediary, named, filling in any missing named names with intermediary
+		try (BufferedWriter writer = Files.newBufferedWriter(tinyMappings.toPath(), StandardCharsets.UTF_8)) {
+			Tiny2Writer tiny2Writer = new Tiny2Writer(writer, false);
+			MappingNsCompleter nsCompleter = new MappingNsCompleter(tiny2Writer, Collections.singletonMap(MappingNamespace.NAMED.stringValue(), MappingNamespace.INTERMEDIARY.stringValue()), false);
+			intermediaryTree.accept(new MappingSourceNsSwitch(nsCompleter, MappingNamespace.OFFICIAL.stringValue()));
+		} catch (IOException | RuntimeException e) {
+			throw new RuntimeException("Could not merge mappings from " + getIntermediaryTiny() + " with mappings from " + unmergedYarn, e);
 		}
 	}
 
@@ -354,6 +347,7 @@ public class MappingsProviderImpl extends DependencyProvider implements Mappings
 
 			if (tinyMappings != null) {
 				tinyMappings.delete();
+				Files.deleteIfExists(BinaryMappings.getBinaryPath(tinyMappings.toPath()));
 			}
 
 			if (tinyMappingsJar != null) {
@@ -0,0 +1,70 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings.binary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * Reads tiny mappings through a binary copy stored next to the tiny file, this is also used by the forked decompiler so must not depend on gradle.
+ */
+public final class BinaryMappings {
+	private BinaryMappings() {
+	}
+
+	public static TinyTree read(Path mappingsPath) throws IOException {
+		Path binaryPath = getBinaryPath(mappingsPath);
+		long size = Files.size(mappingsPath);
+		long modified = Files.getLastModifiedTime(mappingsPath).toMillis();
+
+		TinyTree mappings = MappedTinyTree.load(binaryPath, size, modified);
+
+		if (mappings != null) {
+			return mappings;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(mappingsPath)) {
+			mappings = TinyMappingFactory.loadWithDetection(reader);
+		}
+
+		try {
+			BinaryMappingsWriter.write(mappings, binaryPath, size, modified);
+		} catch (IOException e) {
+			// Not fatal, an outdated binary file may still be mapped (and locked on windows), the tiny file will be used again next time.
+			Files.deleteIfExists(binaryPath.resolveSibling(binaryPath.getFileName() + ".tmp"));
+		}
+
+		return mappings;
+	}
+
+	public static Path getBinaryPath(Path mappingsPath) {
+		return mappingsPath.resolveSibling(mappingsPath.getFileName() + ".bin");
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.loom.util.IntArrayBuilder;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.LocalVariableDef;
+import net.fabricmc.mapping.tree.Mapped;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.ParameterDef;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * Writes a {@link TinyTree} in the binary format read by {@link MappedTinyTree}.
+ *
+ * <p>All names, descriptors and comments are interned into a single string pool, every element is stored as a fixed size
+ * record of string pool indices so the reader can access any element by index without parsing the whole file.
+ */
+public final class BinaryMappingsWriter {
+	private final TinyTree tree;
+	private final List<String> namespaces;
+
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	private final IntArrayBuilder classes = new IntArrayBuilder(1024);
+	private final IntArrayBuilder fields = new IntArrayBuilder(1024);
+	private final IntArrayBuilder methods = new IntArrayBuilder(1024);
+	private final IntArrayBuilder parameters = new IntArrayBuilder(1024);
+	private final IntArrayBuilder locals = new IntArrayBuilder(1024);
+
+	private BinaryMappingsWriter(TinyTree tree) {
+		this.tree = tree;
+		this.namespaces = tree.getMetadata().getNamespaces();
+	}
+
+	public static void write(TinyTree tree, Path output, long sourceSize, long sourceModified) throws IOException {
+		new BinaryMappingsWriter(tree).write(output, sourceSize, sourceModified);
+	}
+
+	private void write(Path output, long sourceSize, long sourceModified) throws IOException {
+		for (ClassDef classDef : tree.getClasses()) {
+			addClass(classDef);
+		}
+
+		Path tempOutput = output.resolveSibling(output.getFileName() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempOutput)))) {
+			out.writeInt(MappedTinyTree.MAGIC);
+			out.writeInt(MappedTinyTree.FORMAT_VERSION);
+			out.writeLong(sourceSize);
+			out.writeLong(sourceModified);
+
+			out.writeInt(tree.getMetadata().getMajorVersion());
+			out.writeInt(tree.getMetadata().getMinorVersion());
+
+			out.writeInt(namespaces.size());
+
+			for (String namespace : namespaces) {
+				out.writeInt(intern(namespace));
+			}
+
+			Map<String, String> properties = tree.getMetadata().getProperties();
+			out.writeInt(properties.size());
+
+			for (Map.Entry<String, String> entry : properties.entrySet()) {
+				out.writeInt(intern(entry.getKey()));
+				out.writeInt(intern(entry.getValue()));
+			}
+
+			out.writeInt(classes.size() / MappedTinyTree.classRecordSize(namespaces.size()));
+			out.writeInt(fields.size() / MappedTinyTree.fieldRecordSize(namespaces.size()));
+			out.writeInt(methods.size() / MappedTinyTree.methodRecordSize(namespaces.size()));
+			out.writeInt(parameters.size() / MappedTinyTree.parameterRecordSize(namespaces.size()));
+			out.writeInt(locals.size() / MappedTinyTree.localRecordSize(namespaces.size()));
+			out.writeInt(strings.size());
+
+			writeInts(classes, out);
+			writeInts(fields, out);
+			writeInts(methods, out);
+			writeInts(parameters, out);
+			writeInts(locals, out);
+
+			writeStringPool(out);
+		}
+
+		Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void addClass(ClassDef classDef) {
+		addNames(classes, classDef);
+		classes.add(intern(classDef.getComment()));
+
+		int fieldStart = fields.size() / MappedTinyTree.fieldRecordSize(namespaces.size());
+		int fieldCount = 0;
+
+		for (FieldDef field : classDef.getFields()) {
+			addNames(fields, field);
+
+			for (String namespace : namespaces) {
+				fields.add(intern(field.getDescriptor(namespace)));
+			}
+
+			fields.add(intern(field.getComment()));
+			fieldCount++;
+		}
+
+		int methodStart = methods.size() / MappedTinyTree.methodRecordSize(namespaces.size());
+		int methodCount = 0;
+
+		for (MethodDef method : classDef.getMethods()) {
+			addMethod(method);
+			methodCount++;
+		}
+
+		classes.add(fieldStart);
+		classes.add(fieldCount);
+		classes.add(methodStart);
+		classes.add(methodCount);
+	}
+
+	private void addMethod(MethodDef method) {
+		addNames(methods, method);
+
+		for (String namespace : namespaces) {
+			methods.add(intern(method.getDescriptor(namespace)));
+		}
+
+		methods.add(intern(method.getComment()));
+
+		int parameterStart = parameters.size() / MappedTinyTree.parameterRecordSize(namespaces.size());
+		int parameterCount = 0;
+
+		for (ParameterDef parameter : method.getParameters()) {
+			addNames(parameters, parameter);
+			parameters.add(intern(parameter.getComment()));
+			parameters.add(parameter.getLocalVariableIndex());
+			parameterCount++;
+		}
+
+		int localStart = locals.size() / MappedTinyTree.localRecordSize(namespaces.size());
+		int localCount = 0;
+
+		for (LocalVariableDef local : method.getLocalVariables()) {
+			addNames(locals, local);
+			locals.add(intern(local.getComment()));
+			locals.add(local.getLocalVariableIndex());
+			locals.add(local.getLocalVariableStartOffset());
+			locals.add(local.getLocalVariableTableIndex());
+			localCount++;
+		}
+
+		methods.add(parameterStart);
+		methods.add(parameterCount);
+		methods.add(localStart);
+		methods.add(localCount);
+	}
+
+	private void addNames(IntArrayBuilder table, Mapped mapped) {
+		for (String namespace : namespaces) {
+			table.add(intern(mapped.getName(namespace)));
+		}
+
+		for (String namespace : namespaces) {
+			table.add(intern(mapped.getRawName(namespace)));
+		}
+	}
+
+	private int intern(String string) {
+		if (string == null) {
+			return -1;
+		}
+
+		return stringIds.computeIfAbsent(string, s -> {
+			strings.add(s);
+			return strings.size() - 1;
+		});
+	}
+
+	private void writeStringPool(DataOutputStream out) throws IOException {
+		List<byte[]> encoded = new ArrayList<>(strings.size());
+		int offset = 0;
+
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			encoded.add(bytes);
+			out.writeInt(offset);
+			offset += bytes.length;
+		}
+
+		// End offset of the last string
+		out.writeInt(offset);
+
+		for (byte[] bytes : encoded) {
+			out.write(bytes);
+		}
+	}
+
+	private static void writeInts(IntArrayBuilder table, DataOutputStream out) throws IOException {
+		for (int i = 0; i < table.size(); i++) {
+			out.writeInt(table.get(i));
+		}
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.LocalVariableDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.ParameterDef;
+import net.fabricmc.mapping.tree.TinyMetadata;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * A read only {@link TinyTree} backed by a memory mapped file written by {@link BinaryMappingsWriter}.
+ *
+ * <p>Only the header is read eagerly, names and descriptors are decoded from the mapped buffer as they are requested.
+ */
+public final class MappedTinyTree implements TinyTree {
+	static final int MAGIC = 0x4C4D4254; // LMBT
+	static final int FORMAT_VERSION = 1;
+
+	private final ByteBuffer buffer;
+	private final Metadata metadata;
+	private final int namespaceCount;
+
+	private final int classCount;
+	private final int fieldCount;
+	private final int methodCount;
+	private final int parameterCount;
+	private final int localCount;
+
+	private final int classTable;
+	private final int fieldTable;
+	private final int methodTable;
+	private final int parameterTable;
+	private final int localTable;
+	private final int stringOffsets;
+	private final int stringData;
+
+	private Map<String, ClassDef> defaultNamespaceClassMap;
+
+	private MappedTinyTree(ByteBuffer buffer) {
+		this.buffer = buffer;
+
+		ByteBuffer header = buffer.duplicate();
+		header.position(4 + 4 + 8 + 8);
+
+		int majorVersion = header.getInt();
+		int minorVersion = header.getInt();
+
+		namespaceCount = header.getInt();
+		int[] namespaceIds = new int[namespaceCount];
+
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaceIds[i] = header.getInt();
+		}
+
+		int propertyCount = header.getInt();
+		int[] propertyIds = new int[propertyCount * 2];
+
+		for (int i = 0; i < propertyIds.length; i++) {
+			propertyIds[i] = header.getInt();
+		}
+
+		classCount = header.getInt();
+		fieldCount = header.getInt();
+		methodCount = header.getInt();
+		parameterCount = header.getInt();
+		localCount = header.getInt();
+		int stringCount = header.getInt();
+
+		classTable = header.position();
+		fieldTable = classTable + classCount * classRecordSize(namespaceCount) * 4;
+		methodTable = fieldTable + fieldCount * fieldRecordSize(namespaceCount) * 4;
+		parameterTable = methodTable + methodCount * methodRecordSize(namespaceCount) * 4;
+		localTable = parameterTable + parameterCount * parameterRecordSize(namespaceCount) * 4;
+		stringOffsets = localTable + localCount * localRecordSize(namespaceCount) * 4;
+		stringData = stringOffsets + (stringCount + 1) * 4;
+
+		List<String> namespaces = new ArrayList<>(namespaceCount);
+
+		for (int namespaceId : namespaceIds) {
+			namespaces.add(string(namespaceId));
+		}
+
+		Map<String, String> properties = new LinkedHashMap<>();
+
+		for (int i = 0; i < propertyIds.length; i += 2) {
+			properties.put(string(propertyIds[i]), string(propertyIds[i + 1]));
+		}
+
+		metadata = new Metadata(majorVersion, minorVersion, Collections.unmodifiableList(namespaces), Collections.unmodifiableMap(properties));
+	}
+
+	/**
+	 * Maps the given binary mappings file, returns null when the file is missing, from an older format or was not created from the expected source file.
+	 */
+	@Nullable
+	public static MappedTinyTree load(Path path, long sourceSize, long sourceModified) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		MappedByteBuffer buffer;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < 24) {
+				return null;
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			return null;
+		}
+
+		if (buffer.getLong(8) != sourceSize || buffer.getLong(16) != sourceModified) {
+			return null;
+		}
+
+		return new MappedTinyTree(buffer);
+	}
+
+	static int classRecordSize(int namespaces) {
+		// names, raw names, comment, field start, field count, method start, method count
+		return namespaces * 2 + 5;
+	}
+
+	static int fieldRecordSize(int namespaces) {
+		// names, raw names, descriptors, comment
+		return namespaces * 3 + 1;
+	}
+
+	static int methodRecordSize(int namespaces) {
+		// names, raw names, descriptors, comment, parameter start, parameter count, local start, local count
+		return namespaces * 3 + 5;
+	}
+
+	static int parameterRecordSize(int namespaces) {
+		// names, raw names, comment, lv index
+		return namespaces * 2 + 2;
+	}
+
+	static int localRecordSize(int namespaces) {
+		// names, raw names, comment, lv index, lv start offset, lvt index
+		return namespaces * 2 + 4;
+	}
+
+	/**
+	 * Returns an estimate of the heap used by this tree, the records and strings stay in the mapped file so only the class map takes up heap.
+	 */
+	public long estimateHeapSize() {
+		// The lookup map holds a node, the default namespace name and a class view per class
+		return 1024 + (long) classCount * 128;
+	}
+
+	@Override
+	public TinyMetadata getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public synchronized Map<String, ClassDef> getDefaultNamespaceClassMap() {
+		if (defaultNamespaceClassMap == null) {
+			Map<String, ClassDef> map = new HashMap<>(classCount);
+
+			for (ClassDef classDef : getClasses()) {
+				map.put(classDef.getName(metadata.getNamespaces().get(0)), classDef);
+			}
+
+			defaultNamespaceClassMap = Collections.unmodifiableMap(map);
+		}
+
+		return defaultNamespaceClassMap;
+	}
+
+	@Override
+	public Collection<ClassDef> getClasses() {
+		return new RecordList<>(0, classCount, MappedClass::new);
+	}
+
+	private int namespaceIndex(String namespace) {
+		int index = metadata.namespaces().indexOf(namespace);
+
+		if (index == -1) {
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		}
+
+		return index;
+	}
+
+	private int intAt(int table, int recordSize, int index, int field) {
+		return buffer.getInt(table + (index * recordSize + field) * 4);
+	}
+
+	@Nullable
+	private String string(int id) {
+		if (id < 0) {
+			return null;
+		}
+
+		int start = buffer.getInt(stringOffsets + id * 4);
+		int end = buffer.getInt(stringOffsets + (id + 1) * 4);
+		byte[] bytes = new byte[end - start];
+		buffer.get(stringData + start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static final class RecordList<T> extends AbstractList<T> {
+		private final int start;
+		private final int size;
+		private final IntFunction<T> factory;
+
+		private RecordList(int start, int size, IntFunction<T> factory) {
+			this.start = start;
+			this.size = size;
+			this.factory = factory;
+		}
+
+		@Override
+		public T get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException(index);
+			}
+
+			return factory.apply(start + index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private abstract class MappedElement {
+		protected final int index;
+
+		MappedElement(int index) {
+			this.index = index;
+		}
+
+		protected abstract int table();
+
+		protected abstract int recordSize();
+
+		protected int field(int field) {
+			return intAt(table(), recordSize(), index, field);
+		}
+
+		public String getName(String namespace) {
+			return string(field(namespaceIndex(namespace)));
+		}
+
+		public String getRawName(String namespace) {
+			return string(field(namespaceCount + namespaceIndex(namespace)));
+		}
+	}
+
+	private final class MappedClass extends MappedElement implements ClassDef {
+		MappedClass(int index) {
+			super(index);
+		}
+
+		@Override
+		protected int table() {
+			return classTable;
+		}
+
+		@Override
+		protected int recordSize() {
+			return classRecordSize(namespaceCount);
+		}
+
+		@Override
+		public String getComment() {
+			return string(field(namespaceCount * 2));
+		}
+
+		@Override
+		public Collection<FieldDef> getFields() {
+			return new RecordList<>(field(namespaceCount * 2 + 1), field(namespaceCount * 2 + 2), MappedField::new);
+		}
+
+		@Override
+		public Collection<MethodDef> getMethods() {
+			return new RecordList<>(field(namespaceCount * 2 + 3), field(namespaceCount * 2 + 4), MappedMethod::new);
+		}
+	}
+
+	private final class MappedField extends MappedElement implements FieldDef {
+		MappedField(int index) {
+			super(index);
+		}
+
+		@Override
+		protected int table() {
+			return fieldTable;
+		}
+
+		@Override
+		protected int recordSize() {
+			return fieldRecordSize(namespaceCount);
+		}
+
+		@Override
+		public String getDescriptor(String namespace) {
+			return string(field(namespaceCount * 2 + namespaceIndex(namespace)));
+		}
+
+		@Override
+		public String getComment() {
+			return string(field(namespaceCount * 3));
+		}
+	}
+
+	private final class MappedMethod extends MappedElement implements MethodDef {
+		MappedMethod(int index) {
+			super(index);
+		}
+
+		@Override
+		protected int table() {
+			return methodTable;
+		}
+
+		@Override
+		protected int recordSize() {
+			return methodRecordSize(namespaceCount);
+		}
+
+		@Override
+		public String getDescriptor(String namespace) {
+			return string(field(namespaceCount * 2 + namespaceIndex(namespace)));
+		}
+
+		@Override
+		public String getComment() {
+			return string(field(namespaceCount * 3));
+		}
+
+		@Override
+		public Collection<ParameterDef> getParameters() {
+			return new RecordList<>(field(namespaceCount * 3 + 1), field(namespaceCount * 3 + 2), MappedParameter::new);
+		}
+
+		@Override
+		public Collection<LocalVariableDef> getLocalVariables() {
+			return new RecordList<>(field(namespaceCount * 3 + 3), field(namespaceCount * 3 + 4), MappedLocal::new);
+		}
+	}
+
+	private final class MappedParameter extends MappedElement implements ParameterDef {
+		MappedParameter(int index) {
+			super(index);
+		}
+
+		@Override
+		protected int table() {
+			return parameterTable;
+		}
+
+		@Override
+		protected int recordSize() {
+			return parameterRecordSize(namespaceCount);
+		}
+
+		@Override
+		public String getComment() {
+			return string(field(namespaceCount * 2));
+		}
+
+		@Override
+		public int getLocalVariableIndex() {
+			return field(namespaceCount * 2 + 1);
+		}
+	}
+
+	private final class MappedLocal extends MappedElement implements LocalVariableDef {
+		MappedLocal(int index) {
+			super(index);
+		}
+
+		@Override
+		protected int table() {
+			return localTable;
+		}
+
+		@Override
+		protected int recordSize() {
+			return localRecordSize(namespaceCount);
+		}
+
+		@Override
+		public String getComment() {
+			return string(field(namespaceCount * 2));
+		}
+
+		@Override
+		public int getLocalVariableIndex() {
+			return field(namespaceCount * 2 + 1);
+		}
+
+		@Override
+		public int getLocalVariableStartOffset() {
+			return field(namespaceCount * 2 + 2);
+		}
+
+		@Override
+		public int getLocalVariableTableIndex() {
+			return field(namespaceCount * 2 + 3);
+		}
+	}
+
+	private record Metadata(int majorVersion, int minorVersion, List<String> namespaces, Map<String, String> properties) implements TinyMetadata {
+		@Override
+		public int getMajorVersion() {
+			return majorVersion;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return minorVersion;
+		}
+
+		@Override
+		public List<String> getNamespaces() {
+			return namespaces;
+		}
+
+		@Override
+		public Map<String, String> getProperties() {
+			return properties;
+		}
+	}
+}
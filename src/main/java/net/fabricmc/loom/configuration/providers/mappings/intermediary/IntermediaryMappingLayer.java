@@ -33,6 +33,7 @@ import java.util.Collections;
 
 import net.fabricmc.loom.configuration.providers.mappings.MappingLayer;
 import net.fabricmc.loom.configuration.providers.mappings.MappingNamespace;
+import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.mappingio.MappingVisitor;
 import net.fabricmc.mappingio.adapter.MappingNsCompleter;
 import net.fabricmc.mappingio.format.Tiny2Reader;
@@ -52,4 +53,9 @@ public record IntermediaryMappingLayer(File tinyFile) implements MappingLayer {
 			Tiny2Reader.read(reader, nsCompleter);
 		}
 	}
+
+	@Override
+	public String getFingerprint() {
+		return "intermediary:" + Checksum.sha256Hex(tinyFile());
+	}
 }
@@ -32,6 +32,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.gradle.api.logging.Logger;
 
@@ -43,6 +47,7 @@ import net.fabricmc.loom.util.HashedDownloadUtil;
 import net.fabricmc.mappingio.MappingVisitor;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.format.ProGuardReader;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public record MojangMappingLayer(MinecraftVersionMeta.Download clientDownload,
 									MinecraftVersionMeta.Download serverDownload,
@@ -53,23 +58,61 @@ public record MojangMappingLayer(MinecraftVersionMeta.Download clientDownload,
 		var clientMappings = new File(workingDir(), "client.txt");
 		var serverMappings = new File(workingDir(), "server.txt");
 
-		download(clientMappings, serverMappings);
+		// Download and parse both sides concurrently, they are merged in a fixed order below so the result doesn't depend on timing
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		MemoryMappingTree clientTree;
+		MemoryMappingTree serverTree;
+
+		try {
+			Future<MemoryMappingTree> clientFuture = executor.submit(() -> readMappings(clientDownload(), clientMappings));
+			Future<MemoryMappingTree> serverFuture = executor.submit(() -> readMappings(serverDownload(), serverMappings));
+
+			clientTree = getResult(clientFuture);
+			serverTree = getResult(serverFuture);
+		} finally {
+			executor.shutdownNow();
+		}
 
 		printMappingsLicense(clientMappings.toPath());
 
+		serverTree.accept(clientTree);
+
 		// Make official the source namespace
 		MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(mappingVisitor, MappingNamespace.OFFICIAL.stringValue());
+		clientTree.accept(nsSwitch);
+	}
+
+	private MemoryMappingTree readMappings(MinecraftVersionMeta.Download download, File mappings) throws IOException {
+		HashedDownloadUtil.downloadIfInvalid(new URL(download.url()), mappings, download.sha1(), logger(), false);
+
+		MemoryMappingTree mappingTree = new MemoryMappingTree();
 
-		try (BufferedReader clientBufferedReader = Files.newBufferedReader(clientMappings.toPath(), StandardCharsets.UTF_8);
-				BufferedReader serverBufferedReader = Files.newBufferedReader(serverMappings.toPath(), StandardCharsets.UTF_8)) {
-			ProGuardReader.read(clientBufferedReader, MappingNamespace.NAMED.stringValue(), MappingNamespace.OFFICIAL.stringValue(), nsSwitch);
-			ProGuardReader.read(serverBufferedReader, MappingNamespace.NAMED.stringValue(), MappingNamespace.OFFICIAL.stringValue(), nsSwitch);
+		try (BufferedReader reader = Files.newBufferedReader(mappings.toPath(), StandardCharsets.UTF_8)) {
+			ProGuardReader.read(reader, MappingNamespace.NAMED.stringValue(), MappingNamespace.OFFICIAL.stringValue(), mappingTree);
 		}
+
+		return mappingTree;
 	}
 
-	private void download(File clientMappings, File serverMappings) throws IOException {
-		HashedDownloadUtil.downloadIfInvalid(new URL(clientDownload().url()), clientMappings, clientDownload().sha1(), logger(), false);
-		HashedDownloadUtil.downloadIfInvalid(new URL(serverDownload().url()), serverMappings, serverDownload().sha1(), logger(), false);
+	private static MemoryMappingTree getResult(Future<MemoryMappingTree> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading mojang mappings", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw new RuntimeException("Failed to read mojang mappings", e.getCause());
+		}
+	}
+
+	@Override
+	public String getFingerprint() {
+		// The mappings are downloaded and verified against these hashes, so there is no need to hash the files
+		return "mojang:%s:%s".formatted(clientDownload().sha1(), serverDownload().sha1());
 	}
 
 	private void printMappingsLicense(Path clientMappings) {
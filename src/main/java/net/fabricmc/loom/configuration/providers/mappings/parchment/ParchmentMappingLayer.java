@@ -27,13 +27,15 @@ package net.fabricmc.loom.configuration.providers.mappings.parchment;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
-import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.providers.mappings.MappingLayer;
 import net.fabricmc.loom.configuration.providers.mappings.MappingNamespace;
+import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.mappingio.MappingVisitor;
 
 public record ParchmentMappingLayer(File parchmentFile, boolean removePrefix) implements MappingLayer {
@@ -41,22 +43,37 @@ public record ParchmentMappingLayer(File parchmentFile, boolean removePrefix) im
 
 	@Override
 	public void visit(MappingVisitor mappingVisitor) throws IOException {
-		ParchmentTreeV1 parchmentData = getParchmentData();
-
 		if (removePrefix()) {
 			mappingVisitor = new ParchmentPrefixStripingMappingVisitor(mappingVisitor);
 		}
 
-		parchmentData.visit(mappingVisitor, MappingNamespace.NAMED.stringValue());
+		while (true) {
+			if (mappingVisitor.visitHeader()) {
+				mappingVisitor.visitNamespaces(MappingNamespace.NAMED.stringValue(), Collections.emptyList());
+			}
+
+			if (mappingVisitor.visitContent()) {
+				readParchmentData(mappingVisitor);
+			}
+
+			if (mappingVisitor.visitEnd()) {
+				break;
+			}
+		}
+	}
+
+	@Override
+	public String getFingerprint() {
+		return "parchment:%s:%b".formatted(Checksum.sha256Hex(parchmentFile()), removePrefix());
 	}
 
-	private ParchmentTreeV1 getParchmentData() throws IOException {
+	private void readParchmentData(MappingVisitor mappingVisitor) throws IOException {
 		try (var zipFile = new ZipFile(parchmentFile())) {
 			ZipEntry zipFileEntry = zipFile.getEntry(PARCHMENT_DATA_FILE_NAME);
 			Objects.requireNonNull(zipFileEntry, "Could not find %s in parchment data file".formatted(PARCHMENT_DATA_FILE_NAME));
 
-			try (var reader = new InputStreamReader(zipFile.getInputStream(zipFileEntry))) {
-				return LoomGradlePlugin.OBJECT_MAPPER.readValue(reader, ParchmentTreeV1.class);
+			try (var reader = new InputStreamReader(zipFile.getInputStream(zipFileEntry), StandardCharsets.UTF_8)) {
+				ParchmentV1Reader.readContent(reader, mappingVisitor);
 			}
 		}
 	}
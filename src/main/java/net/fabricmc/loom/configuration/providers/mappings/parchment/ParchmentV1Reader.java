@@ -0,0 +1,288 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings.parchment;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingVisitor;
+
+/**
+ * Reads the content of a parchment v1 json export, feeding it to a {@link MappingVisitor} while it is being parsed.
+ *
+ * <p>Only the members of a class that appear in the json before the class name are buffered, everything else is visited straight away.
+ */
+public final class ParchmentV1Reader {
+	private final JsonParser parser;
+	private final MappingVisitor visitor;
+
+	private ParchmentV1Reader(JsonParser parser, MappingVisitor visitor) {
+		this.parser = parser;
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Visits the classes in the json, the caller is responsible for visiting the header and the end of the mappings.
+	 */
+	public static void readContent(Reader reader, MappingVisitor visitor) throws IOException {
+		try (JsonParser parser = LoomGradlePlugin.OBJECT_MAPPER.createParser(reader)) {
+			new ParchmentV1Reader(parser, visitor).readRoot();
+		}
+	}
+
+	private void readRoot() throws IOException {
+		expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+
+			if (parser.nextToken() != JsonToken.VALUE_NULL && key.equals("classes")) {
+				readClasses();
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private void readClasses() throws IOException {
+		expect(parser.currentToken(), JsonToken.START_ARRAY);
+
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			readClass();
+		}
+	}
+
+	private void readClass() throws IOException {
+		String name = null;
+		String javadoc = null;
+		boolean visitContent = false;
+		Map<String, JsonNode> pendingMembers = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			switch (key) {
+			case "name" -> {
+				name = parser.getText();
+				visitContent = visitor.visitClass(name) && visitor.visitElementContent(MappedElementKind.CLASS);
+
+				if (visitContent && pendingMembers != null) {
+					for (Map.Entry<String, JsonNode> entry : pendingMembers.entrySet()) {
+						try (JsonParser memberParser = entry.getValue().traverse(LoomGradlePlugin.OBJECT_MAPPER)) {
+							memberParser.nextToken();
+							new ParchmentV1Reader(memberParser, visitor).readMembers(entry.getKey());
+						}
+					}
+				}
+
+				pendingMembers = null;
+			}
+			case "fields", "methods" -> {
+				if (token == JsonToken.VALUE_NULL) {
+					parser.skipChildren();
+				} else if (name == null) {
+					if (pendingMembers == null) {
+						pendingMembers = new LinkedHashMap<>();
+					}
+
+					pendingMembers.put(key, parser.readValueAsTree());
+				} else if (visitContent) {
+					readMembers(key);
+				} else {
+					parser.skipChildren();
+				}
+			}
+			case "javadoc" -> javadoc = readJavadoc();
+			default -> parser.skipChildren();
+			}
+		}
+
+		if (name == null) {
+			throw new IOException("Parchment class without a name at " + parser.getCurrentLocation());
+		}
+
+		if (visitContent && javadoc != null) {
+			visitor.visitComment(MappedElementKind.CLASS, javadoc);
+		}
+	}
+
+	private void readMembers(String key) throws IOException {
+		expect(parser.currentToken(), JsonToken.START_ARRAY);
+
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			if (key.equals("fields")) {
+				readField();
+			} else {
+				readMethod();
+			}
+		}
+	}
+
+	private void readField() throws IOException {
+		String name = null;
+		String descriptor = null;
+		String javadoc = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			parser.nextToken();
+
+			switch (key) {
+			case "name" -> name = parser.getText();
+			case "descriptor" -> descriptor = parser.getText();
+			case "javadoc" -> javadoc = readJavadoc();
+			default -> parser.skipChildren();
+			}
+		}
+
+		if (visitor.visitField(name, descriptor)) {
+			if (!visitor.visitElementContent(MappedElementKind.FIELD)) {
+				return;
+			}
+
+			if (javadoc != null) {
+				visitor.visitComment(MappedElementKind.FIELD, javadoc);
+			}
+		}
+	}
+
+	private void readMethod() throws IOException {
+		String name = null;
+		String descriptor = null;
+		String javadoc = null;
+		List<Parameter> parameters = List.of();
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			switch (key) {
+			case "name" -> name = parser.getText();
+			case "descriptor" -> descriptor = parser.getText();
+			case "javadoc" -> javadoc = readJavadoc();
+			case "parameters" -> parameters = token == JsonToken.VALUE_NULL ? List.of() : readParameters();
+			default -> parser.skipChildren();
+			}
+		}
+
+		if (visitor.visitMethod(name, descriptor)) {
+			if (!visitor.visitElementContent(MappedElementKind.METHOD)) {
+				return;
+			}
+
+			for (Parameter parameter : parameters) {
+				parameter.visit(visitor);
+			}
+
+			if (javadoc != null) {
+				visitor.visitComment(MappedElementKind.METHOD, javadoc);
+			}
+		}
+	}
+
+	private List<Parameter> readParameters() throws IOException {
+		expect(parser.currentToken(), JsonToken.START_ARRAY);
+		List<Parameter> parameters = new ArrayList<>();
+
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			int index = 0;
+			String name = null;
+			String javadoc = null;
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String key = parser.getCurrentName();
+				parser.nextToken();
+
+				switch (key) {
+				case "index" -> index = parser.getIntValue();
+				case "name" -> name = parser.getText();
+				case "javadoc" -> javadoc = readJavadoc();
+				default -> parser.skipChildren();
+				}
+			}
+
+			parameters.add(new Parameter(index, name, javadoc));
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * Reads a javadoc, either a single string or an array of lines.
+	 */
+	private String readJavadoc() throws IOException {
+		return switch (parser.currentToken()) {
+		case VALUE_NULL -> null;
+		case VALUE_STRING -> parser.getText();
+		case START_ARRAY -> {
+			StringBuilder builder = new StringBuilder();
+			boolean first = true;
+
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				if (!first) {
+					builder.append('\n');
+				}
+
+				builder.append(parser.getText());
+				first = false;
+			}
+
+			yield builder.toString();
+		}
+		default -> throw new IOException("Unexpected javadoc token %s at %s".formatted(parser.currentToken(), parser.getCurrentLocation()));
+		};
+	}
+
+	private void expect(JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Expected %s but got %s at %s".formatted(expected, actual, parser.getCurrentLocation()));
+		}
+	}
+
+	private record Parameter(int index, String name, String javadoc) {
+		void visit(MappingVisitor visitor) {
+			if (visitor.visitMethodArg(index, index, name)) {
+				if (!visitor.visitElementContent(MappedElementKind.METHOD_ARG)) {
+					return;
+				}
+
+				if (javadoc != null) {
+					visitor.visitComment(MappedElementKind.METHOD_ARG, javadoc);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,429 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.minecraft;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.logging.Logger;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.loom.configuration.providers.mappings.MappingsCache;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.LocalVariableDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.ParameterDef;
+import net.fabricmc.mapping.tree.TinyTree;
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * Updates the remapped minecraft jar of the previous mappings when only the mappings change, instead of remapping the whole jar again.
+ *
+ * <p>The new mappings are diffed against the mappings used for the previous jar. Only classes whose own mappings changed, or that reference
+ * or declare a changed class or member, are written again. Every other entry is copied from the previous jar.
+ * This is opt-in with the {@code fabric.loom.incrementalRemap} system property.
+ */
+public final class IncrementalMinecraftRemapper {
+	private static final String PROPERTY = "fabric.loom.incrementalRemap";
+
+	private final Path stateFile;
+	private final Logger logger;
+
+	public IncrementalMinecraftRemapper(Path stateFile, Logger logger) {
+		this.stateFile = stateFile;
+		this.logger = logger;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(PROPERTY);
+	}
+
+	/**
+	 * Creates the output from the previously remapped jar.
+	 *
+	 * @param hierarchy the classpath of the remap, including the input jar or its {@link net.fabricmc.loom.util.ClasspathIndex} stubs
+	 * @return false when there is no usable previous jar, and a full remap is needed
+	 */
+	public boolean remap(TinyRemapper remapper, Path input, String inputHash, Path[] hierarchy, Path output, Path mappings, String fromM, String toM) throws IOException {
+		State previous = readState();
+
+		if (previous == null || !previous.inputHash().equals(inputHash) || previous.output().equals(output)
+				|| !Files.exists(previous.output()) || !Files.exists(previous.mappings())) {
+			return false;
+		}
+
+		TinyTree oldMappings = MappingsCache.INSTANCE.get(previous.mappings());
+		TinyTree newMappings = MappingsCache.INSTANCE.get(mappings);
+		MappingsDiff diff = MappingsDiff.create(oldMappings, newMappings, fromM, toM);
+
+		if (diff.isEmpty()) {
+			logger.lifecycle(":no mapping changes for {}, reusing {}", toM, previous.output().getFileName());
+			Files.copy(previous.output(), output, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		}
+
+		Set<String> affected = diff.findAffectedClasses(input);
+		logger.lifecycle(":remapping {} minecraft classes affected by mapping changes (TinyRemapper, {} -> {})", affected.size(), fromM, toM);
+
+		// The names of the affected classes in the previous jar
+		Set<String> oldNames = new HashSet<>();
+
+		for (String name : affected) {
+			oldNames.add(mapClassName(oldMappings, name, fromM, toM));
+		}
+
+		// Only the affected classes are read as inputs, the rest of the jar is only needed for the hierarchy
+		Map<String, byte[]> remappedClasses = new ConcurrentSkipListMap<>();
+		Path affectedJar = Files.createTempFile("loom-incremental-remap", ".jar");
+
+		try {
+			writeClasses(input, affected, affectedJar);
+
+			remapper.readClassPath(hierarchy);
+			remapper.readInputs(affectedJar);
+			remapper.apply(remappedClasses::put);
+		} finally {
+			Files.deleteIfExists(affectedJar);
+		}
+
+		Path tempOutput = output.resolveSibling(output.getFileName() + ".tmp");
+
+		try (ZipFile previousJar = new ZipFile(previous.output().toFile());
+				ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempOutput)))) {
+			Enumeration<? extends ZipEntry> entries = previousJar.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+
+				if (name.endsWith(".class") && oldNames.contains(name.substring(0, name.length() - 6))) {
+					continue;
+				}
+
+				ZipEntry newEntry = new ZipEntry(name);
+				newEntry.setTime(entry.getTime());
+				out.putNextEntry(newEntry);
+
+				try (InputStream inputStream = previousJar.getInputStream(entry)) {
+					inputStream.transferTo(out);
+				}
+
+				out.closeEntry();
+			}
+
+			// Sorted and with a fixed time, so the output only depends on the input and the mappings
+			for (Map.Entry<String, byte[]> entry : remappedClasses.entrySet()) {
+				ZipEntry newEntry = new ZipEntry(entry.getKey() + ".class");
+				newEntry.setTime(ZipReprocessorUtil.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+				out.putNextEntry(newEntry);
+				out.write(entry.getValue());
+				out.closeEntry();
+			}
+		}
+
+		Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
+	private static void writeClasses(Path input, Set<String> classes, Path output) throws IOException {
+		try (ZipFile zipFile = new ZipFile(input.toFile());
+				ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+
+				if (!name.endsWith(".class") || !classes.contains(name.substring(0, name.length() - 6))) {
+					continue;
+				}
+
+				out.putNextEntry(new ZipEntry(name));
+
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					inputStream.transferTo(out);
+				}
+
+				out.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Records the output as the base for the next incremental remap.
+	 */
+	public void saveState(Path output, Path mappings, String inputHash) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("output", output.toAbsolutePath().toString());
+		properties.setProperty("mappings", mappings.toAbsolutePath().toString());
+		properties.setProperty("input", inputHash);
+
+		Files.createDirectories(stateFile.getParent());
+
+		try (Writer writer = Files.newBufferedWriter(stateFile, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+	}
+
+	private State readState() throws IOException {
+		if (!Files.exists(stateFile)) {
+			return null;
+		}
+
+		Properties properties = new Properties();
+
+		try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+
+		String output = properties.getProperty("output");
+		String mappings = properties.getProperty("mappings");
+		String input = properties.getProperty("input");
+
+		if (output == null || mappings == null || input == null) {
+			return null;
+		}
+
+		return new State(Paths.get(output), Paths.get(mappings), input);
+	}
+
+	private static String mapClassName(TinyTree mappings, String name, String fromM, String toM) {
+		ClassDef classDef = mappings.getDefaultNamespaceClassMap().get(name);
+
+		if (classDef == null || !mappings.getMetadata().getNamespaces().get(0).equals(fromM)) {
+			return name;
+		}
+
+		return classDef.getName(toM);
+	}
+
+	private record State(Path output, Path mappings, String inputHash) {
+	}
+
+	public record MappingsDiff(Set<String> changedClasses, Set<String> changedMembers, Set<String> directlyAffected) {
+		public static MappingsDiff create(TinyTree oldMappings, TinyTree newMappings, String fromM, String toM) {
+			MappingsDiff diff = new MappingsDiff(new HashSet<>(), new HashSet<>(), new HashSet<>());
+			Map<String, ClassDef> oldClasses = getClasses(oldMappings, fromM);
+			Map<String, ClassDef> newClasses = getClasses(newMappings, fromM);
+
+			for (Map.Entry<String, ClassDef> entry : newClasses.entrySet()) {
+				diff.compare(entry.getKey(), oldClasses.get(entry.getKey()), entry.getValue(), fromM, toM);
+			}
+
+			for (Map.Entry<String, ClassDef> entry : oldClasses.entrySet()) {
+				if (!newClasses.containsKey(entry.getKey())) {
+					diff.compare(entry.getKey(), entry.getValue(), null, fromM, toM);
+				}
+			}
+
+			return diff;
+		}
+
+		private static Map<String, ClassDef> getClasses(TinyTree mappings, String namespace) {
+			Map<String, ClassDef> classes = new HashMap<>();
+
+			for (ClassDef classDef : mappings.getClasses()) {
+				classes.put(classDef.getName(namespace), classDef);
+			}
+
+			return classes;
+		}
+
+		private void compare(String name, ClassDef oldClass, ClassDef newClass, String fromM, String toM) {
+			if (oldClass == null || newClass == null || !oldClass.getName(toM).equals(newClass.getName(toM))) {
+				changedClasses.add(name);
+				directlyAffected.add(name);
+			}
+
+			Map<String, String> oldMembers = getMembers(oldClass, fromM, toM);
+			Map<String, String> newMembers = getMembers(newClass, fromM, toM);
+			Set<String> keys = new HashSet<>(oldMembers.keySet());
+			keys.addAll(newMembers.keySet());
+
+			for (String key : keys) {
+				String oldMember = oldMembers.get(key);
+				String newMember = newMembers.get(key);
+
+				if (oldMember != null && oldMember.equals(newMember)) {
+					continue;
+				}
+
+				directlyAffected.add(name);
+
+				if (oldMember == null || newMember == null || !getMemberName(oldMember).equals(getMemberName(newMember))) {
+					changedMembers.add(key);
+				}
+			}
+		}
+
+		/**
+		 * Returns the target mappings of each member keyed by its source name and descriptor, the member name comes first followed by the names of its parameters and locals.
+		 */
+		private static Map<String, String> getMembers(ClassDef classDef, String fromM, String toM) {
+			Map<String, String> members = new HashMap<>();
+
+			if (classDef == null) {
+				return members;
+			}
+
+			for (FieldDef field : classDef.getFields()) {
+				members.put(field.getName(fromM) + ":" + field.getDescriptor(fromM), field.getName(toM));
+			}
+
+			for (MethodDef method : classDef.getMethods()) {
+				StringBuilder builder = new StringBuilder(method.getName(toM));
+
+				for (ParameterDef parameter : method.getParameters()) {
+					builder.append('\n').append(parameter.getLocalVariableIndex()).append(' ').append(parameter.getName(toM));
+				}
+
+				for (LocalVariableDef local : method.getLocalVariables()) {
+					builder.append('\n').append(local.getLocalVariableIndex()).append(' ').append(local.getLocalVariableStartOffset())
+							.append(' ').append(local.getName(toM));
+				}
+
+				members.put(method.getName(fromM) + method.getDescriptor(fromM), builder.toString());
+			}
+
+			return members;
+		}
+
+		private static String getMemberName(String member) {
+			int end = member.indexOf('\n');
+			return end == -1 ? member : member.substring(0, end);
+		}
+
+		public boolean isEmpty() {
+			return directlyAffected.isEmpty();
+		}
+
+		/**
+		 * Returns the classes in the input jar whose remapped output may differ: classes with changed mappings,
+		 * and classes that reference or declare a changed class or member. Members are matched by name and descriptor only, which also covers overrides.
+		 */
+		public Set<String> findAffectedClasses(Path input) throws IOException {
+			Set<String> affected = new HashSet<>(directlyAffected);
+
+			try (ZipFile zipFile = new ZipFile(input.toFile())) {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+
+					if (!entry.getName().endsWith(".class")) {
+						continue;
+					}
+
+					ClassReader reader;
+
+					try (InputStream inputStream = zipFile.getInputStream(entry)) {
+						reader = new ClassReader(inputStream.readAllBytes());
+					}
+
+					if (affected.contains(reader.getClassName())) {
+						continue;
+					}
+
+					ReferenceCollector collector = new ReferenceCollector();
+					reader.accept(new ClassRemapper(new ClassVisitor(Opcodes.ASM9) { }, collector), ClassReader.SKIP_FRAMES);
+
+					if (collector.affected) {
+						affected.add(reader.getClassName());
+					}
+				}
+			}
+
+			return affected;
+		}
+
+		/**
+		 * Sees every class and member reference of a class without changing it.
+		 */
+		private final class ReferenceCollector extends Remapper {
+			private boolean affected;
+
+			@Override
+			public String map(String internalName) {
+				if (changedClasses.contains(internalName)) {
+					affected = true;
+				}
+
+				return internalName;
+			}
+
+			@Override
+			public String mapMethodName(String owner, String name, String descriptor) {
+				if (changedMembers.contains(name + descriptor)) {
+					affected = true;
+				}
+
+				return name;
+			}
+
+			@Override
+			public String mapInvokeDynamicMethodName(String name, String descriptor) {
+				// Lambda names can't be looked up without resolving the bootstrap method, treat any method with the same name as changed
+				if (changedMembers.stream().anyMatch(member -> member.startsWith(name + "("))) {
+					affected = true;
+				}
+
+				return name;
+			}
+
+			@Override
+			public String mapFieldName(String owner, String name, String descriptor) {
+				if (changedMembers.contains(name + ":" + descriptor)) {
+					affected = true;
+				}
+
+				return name;
+			}
+		}
+	}
+}
@@ -28,9 +28,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.Project;
@@ -38,7 +45,10 @@ import org.gradle.api.Project;
 import net.fabricmc.loom.configuration.DependencyProvider;
 import net.fabricmc.loom.configuration.providers.MinecraftProviderImpl;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.ClasspathIndex;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.StreamingRemapper;
 import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
 import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -50,6 +60,10 @@ public class MinecraftMappedProvider extends DependencyProvider {
 			.put("javax/annotation/concurrent/Immutable", "org/jetbrains/annotations/Unmodifiable")
 			.build();
 
+	// A rough estimate of the heap used by one remap per byte of the compressed input jar,
+	// the remapper holds the uncompressed classes along with their remapped output
+	private static final long REMAP_HEAP_PER_JAR_BYTE = 10;
+
 	private File minecraftMappedJar;
 	private File minecraftIntermediaryJar;
 
@@ -65,11 +79,11 @@ public class MinecraftMappedProvider extends DependencyProvider {
 			throw new RuntimeException("mappings file not found");
 		}
 
-		if (!getExtension().getMinecraftProvider().getMergedJar().exists()) {
-			throw new RuntimeException("input merged jar not found");
-		}
-
 		if (!minecraftMappedJar.exists() || !getIntermediaryJar().exists() || isRefreshDeps()) {
+			if (!getExtension().getMinecraftProvider().getMergedJar().exists()) {
+				throw new RuntimeException("input merged jar not found");
+			}
+
 			if (minecraftMappedJar.exists()) {
 				minecraftMappedJar.delete();
 			}
@@ -101,34 +115,133 @@ public class MinecraftMappedProvider extends DependencyProvider {
 	private void mapMinecraftJar() throws IOException {
 		String fromM = "official";
 
-		MappingsProviderImpl mappingsProvider = getExtension().getMappingsProvider();
-
 		Path input = minecraftProvider.getMergedJar().toPath();
 		Path outputMapped = minecraftMappedJar.toPath();
 		Path outputIntermediary = minecraftIntermediaryJar.toPath();
 
-		for (String toM : Arrays.asList("named", "intermediary")) {
-			Path output = "named".equals(toM) ? outputMapped : outputIntermediary;
+		// Resolve the classpath and load the mappings once, both remappers then run at the same time using the shared state.
+		Path[] classpath = getRemapClasspath();
+		getExtension().getMappingsProvider().getMappings();
+
+		getProject().getLogger().lifecycle(":remapping minecraft (TinyRemapper, " + fromM + " -> named, intermediary)");
+
+		ExecutorService executor = Executors.newFixedThreadPool(canRemapConcurrently(input) ? 2 : 1);
 
-			getProject().getLogger().lifecycle(":remapping minecraft (TinyRemapper, " + fromM + " -> " + toM + ")");
+		try {
+			List<Future<?>> futures = new ArrayList<>();
 
-			Files.deleteIfExists(output);
+			for (String toM : Arrays.asList("named", "intermediary")) {
+				Path output = "named".equals(toM) ? outputMapped : outputIntermediary;
+
+				futures.add(executor.submit(() -> {
+					remapMinecraftJar(input, output, classpath, fromM, toM);
+					return null;
+				}));
+			}
 
-			TinyRemapper remapper = getTinyRemapper(fromM, toM);
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while remapping minecraft", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns true when the named and intermediary remaps can run at the same time, each remap holds every class of the jar in memory.
+	 */
+	private boolean canRemapConcurrently(Path input) throws IOException {
+		// When the remap is memory bounded only run one at a time, so the budget applies to the whole remap
+		if (StreamingRemapper.isEnabled()) {
+			return false;
+		}
+
+		Runtime runtime = Runtime.getRuntime();
+		long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long required = 2 * Files.size(input) * REMAP_HEAP_PER_JAR_BYTE;
+
+		if (available < required) {
+			getProject().getLogger().info(":remapping minecraft sequentially, {} MiB of heap available but about {} MiB needed to remap concurrently", available / 1024 / 1024, required / 1024 / 1024);
+			return false;
+		}
+
+		return true;
+	}
+
+	private void remapMinecraftJar(Path input, Path output, Path[] classpath, String fromM, String toM) throws IOException {
+		Files.deleteIfExists(output);
+
+		Path mappings = getExtension().getMappingsProvider().tinyMappings.toPath();
+		IncrementalMinecraftRemapper incrementalRemapper = null;
+		String inputHash = null;
+
+		if (IncrementalMinecraftRemapper.isEnabled()) {
+			Path stateFile = getDirectories().getUserCache().toPath()
+					.resolve("remap_state").resolve("minecraft-%s-%s-%s.properties".formatted(minecraftProvider.minecraftVersion(), getExtension().getMappingsProvider().mappingsName, toM));
+			incrementalRemapper = new IncrementalMinecraftRemapper(stateFile, getProject().getLogger());
+			inputHash = Checksum.sha256Hex(input.toFile());
+		}
+
+		try {
+			if (incrementalRemapper != null && !isRefreshDeps()) {
+				TinyRemapper remapper = getTinyRemapper(fromM, toM);
+
+				try {
+					if (incrementalRemapper.remap(remapper, input, inputHash, getRemapHierarchy(input, classpath), output, mappings, fromM, toM)) {
+						incrementalRemapper.saveState(output, mappings, inputHash);
+						return;
+					}
+				} finally {
+					remapper.finish();
+				}
+			}
 
 			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(output).build()) {
 				outputConsumer.addNonClassFiles(input);
-				remapper.readClassPath(getRemapClasspath());
-				remapper.readInputs(input);
-				remapper.apply(outputConsumer);
-			} catch (Exception e) {
-				throw new RuntimeException("Failed to remap JAR " + input + " with mappings from " + mappingsProvider.tinyMappings, e);
-			} finally {
-				remapper.finish();
+
+				if (StreamingRemapper.isEnabled()) {
+					new StreamingRemapper(() -> getTinyRemapper(fromM, toM), getRemapHierarchy(input, classpath)).remap(input, outputConsumer, null);
+				} else {
+					TinyRemapper remapper = getTinyRemapper(fromM, toM);
+
+					try {
+						remapper.readClassPath(classpath);
+						remapper.readInputs(input);
+						remapper.apply(outputConsumer);
+					} finally {
+						remapper.finish();
+					}
+				}
 			}
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to remap JAR " + input + " with mappings from " + mappings, e);
+		}
+
+		if (incrementalRemapper != null) {
+			incrementalRemapper.saveState(output, mappings, inputHash);
 		}
 	}
 
+	/**
+	 * Returns the classpath with the index of the input jar, for remaps that only read part of the input jar as inputs.
+	 */
+	private Path[] getRemapHierarchy(Path input, Path[] classpath) {
+		return Stream.concat(Stream.of(getClasspathIndex().index(input)), Arrays.stream(classpath)).toArray(Path[]::new);
+	}
+
 	public TinyRemapper getTinyRemapper(String fromM, String toM) throws IOException {
 		return TinyRemapper.newRemapper()
 				.withMappings(TinyRemapperMappingsHelper.create(getExtension().getMappingsProvider().getMappings(), fromM, toM, true))
@@ -139,8 +252,13 @@ public class MinecraftMappedProvider extends DependencyProvider {
 	}
 
 	public Path[] getRemapClasspath() {
-		return getProject().getConfigurations().getByName(Constants.Configurations.MINECRAFT_DEPENDENCIES).getFiles()
+		Path[] classpath = getProject().getConfigurations().getByName(Constants.Configurations.MINECRAFT_DEPENDENCIES).getFiles()
 				.stream().map(File::toPath).toArray(Path[]::new);
+		return getClasspathIndex().index(classpath);
+	}
+
+	private ClasspathIndex getClasspathIndex() {
+		return new ClasspathIndex(getDirectories().getClasspathIndexStore().toPath());
 	}
 
 	protected void addDependencies(DependencyInfo dependency, Consumer<Runnable> postPopulationScheduler) {
@@ -35,6 +35,9 @@ public interface LoomFiles {
 	File getProjectBuildCache();
 	File getRemappedModCache();
 	File getNativesJarStore();
+	File getClasspathIndexStore();
+	File getSharedRemappedModStore();
+	File getModMetadataStore();
 	boolean hasCustomNatives();
 	File getNativesDirectory(MinecraftProvider minecraftProvider);
 	File getDefaultLog4jConfigFile();
@@ -39,6 +39,9 @@ public final class LoomFilesImpl implements LoomFiles {
 	private final File projectBuildCache;
 	private final File remappedModCache;
 	private final File nativesJarStore;
+	private final File classpathIndexStore;
+	private final File sharedRemappedModStore;
+	private final File modMetadataStore;
 
 	public LoomFilesImpl(Project project) {
 		this.project = project;
@@ -49,6 +52,9 @@ public final class LoomFilesImpl implements LoomFiles {
 		this.projectBuildCache = createFile(project.getBuildDir(), "loom-cache");
 		this.remappedModCache = createFile(getRootProjectPersistentCache(), "remapped_mods");
 		this.nativesJarStore = createFile(getUserCache(), "natives/jars");
+		this.classpathIndexStore = createFile(getUserCache(), "classpath_index");
+		this.sharedRemappedModStore = createFile(getUserCache(), "remapped_mods");
+		this.modMetadataStore = createFile(getUserCache(), "mod_metadata");
 	}
 
 	private File createFile(File parent, String child) {
@@ -91,6 +97,21 @@ public final class LoomFilesImpl implements LoomFiles {
 		return nativesJarStore;
 	}
 
+	@Override
+	public File getClasspathIndexStore() {
+		return classpathIndexStore;
+	}
+
+	@Override
+	public File getSharedRemappedModStore() {
+		return sharedRemappedModStore;
+	}
+
+	@Override
+	public File getModMetadataStore() {
+		return modMetadataStore;
+	}
+
 	@Override
 	public boolean hasCustomNatives() {
 		return project.getProperties().get("fabric.loom.natives.dir") != null;
@@ -41,6 +41,7 @@ import org.gradle.api.tasks.TaskAction;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.decompilers.DecompilationMetadata;
 import net.fabricmc.loom.api.decompilers.LoomDecompiler;
+import net.fabricmc.loom.configuration.processors.MinecraftProcessedProvider;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
 import net.fabricmc.loom.decompilers.LineNumberRemapper;
 import net.fabricmc.loom.util.Constants;
@@ -81,6 +82,15 @@ public class GenerateSourcesTask extends AbstractLoomTask {
 
 			Files.copy(linemappedJarDestination, runtimeJar, StandardCopyOption.REPLACE_EXISTING);
 			Files.delete(linemappedJarDestination);
+
+			// The processed classes in an overlay jar come first on the classpath, so they need the same line numbers
+			if (getExtension().getMappingsProvider().mappedProvider instanceof MinecraftProcessedProvider processedProvider && processedProvider.getOverlayJar() != null) {
+				Path overlayJar = processedProvider.getOverlayJar().toPath();
+				remapLineNumbers(overlayJar, linemap, linemappedJarDestination);
+
+				Files.copy(linemappedJarDestination, overlayJar, StandardCopyOption.REPLACE_EXISTING);
+				Files.delete(linemappedJarDestination);
+			}
 		}
 	}
 
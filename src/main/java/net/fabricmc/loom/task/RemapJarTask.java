@@ -37,12 +37,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 
 import com.google.common.base.Preconditions;
 import org.gradle.api.Action;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
@@ -66,6 +68,7 @@ import net.fabricmc.loom.build.nesting.NestedJarProvider;
 import net.fabricmc.loom.configuration.JarManifestConfiguration;
 import net.fabricmc.loom.configuration.accesswidener.AccessWidenerJarProcessor;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProviderImpl;
+import net.fabricmc.loom.util.ClasspathIndex;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
 import net.fabricmc.loom.util.ZipReprocessorUtil;
@@ -128,7 +131,17 @@ public class RemapJarTask extends Jar {
 		String toM = "intermediary";
 
 		if (isMainRemapTask) {
-			jarRemapper.addToClasspath(getRemapClasspath());
+			Set<Path> dependencyJars = getDependencyJars();
+
+			for (Path path : getRemapClasspath()) {
+				if (dependencyJars.contains(path)) {
+					jarRemapper.addToIndexedClasspath(path);
+				} else {
+					jarRemapper.addToClasspath(path);
+				}
+			}
+
+			jarRemapper.setClasspathIndex(new ClasspathIndex(extension.getFiles().getClasspathIndexStore().toPath()));
 
 			jarRemapper.addMappings(TinyRemapperMappingsHelper.create(mappingsProvider.getMappings(), fromM, toM, false));
 		}
@@ -242,6 +255,16 @@ public class RemapJarTask extends Jar {
 				.toArray(Path[]::new);
 	}
 
+	/**
+	 * Returns the jars of the external modules on the compile classpath, unlike project outputs these do not change between builds.
+	 */
+	private Set<Path> getDependencyJars() {
+		return getProject().getConfigurations().getByName("compileClasspath").getIncoming().getArtifacts().getArtifacts().stream()
+				.filter(artifact -> artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier)
+				.map(artifact -> artifact.getFile().toPath())
+				.collect(Collectors.toSet());
+	}
+
 	@InputFile
 	public RegularFileProperty getInput() {
 		return input;
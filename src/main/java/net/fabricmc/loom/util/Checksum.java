@@ -62,6 +62,15 @@ public class Checksum {
 		}
 	}
 
+	public static String sha256Hex(File file) {
+		try {
+			HashCode hash = Files.asByteSource(file).hash(Hashing.sha256());
+			return hash.toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to get file hash of " + file, e);
+		}
+	}
+
 	public static String truncatedSha256(File file) {
 		try {
 			HashCode hash = Files.asByteSource(file).hash(Hashing.sha256());
@@ -0,0 +1,241 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+
+/**
+ * A persistent, content addressed index of the class hierarchy and member signatures of remap classpath jars.
+ *
+ * <p>The remapper only needs the hierarchy and members of a classpath jar, so each jar is reduced to a jar of class stubs without code,
+ * debug info, annotations or resources. The stubs are stored in the user cache keyed by the hash of the jar and read by the remapper in place of the jar.
+ *
+ * <p>Entries are never evicted, so only jars that do not change between builds (minecraft, its libraries and resolved mod or library artifacts)
+ * should be indexed. Project outputs and remap inputs would add a new entry on every build.
+ */
+public final class ClasspathIndex {
+	private static final Logger LOGGER = Logging.getLogger(ClasspathIndex.class);
+
+	// Bump this when the content of the index jars changes
+	private static final int FORMAT_VERSION = 1;
+
+	// Daemon wide, avoids hashing unchanged jars on every build
+	private static final Map<FileKey, FileStamp> FILE_STAMPS = new ConcurrentHashMap<>();
+
+	private final Path store;
+
+	public ClasspathIndex(Path store) {
+		this.store = store.resolve("v" + FORMAT_VERSION);
+	}
+
+	/**
+	 * Returns the index of every jar in the classpath, directories and files that could not be indexed are returned as is.
+	 */
+	public Path[] index(Path... classpath) {
+		return Arrays.stream(classpath).parallel().map(this::index).toArray(Path[]::new);
+	}
+
+	public Path index(Path path) {
+		if (!Files.isRegularFile(path)) {
+			return path;
+		}
+
+		try {
+			long size = Files.size(path);
+			long modified = Files.getLastModifiedTime(path).toMillis();
+			FileKey key = new FileKey(store, path);
+			FileStamp stamp = FILE_STAMPS.get(key);
+
+			if (stamp != null && stamp.size() == size && stamp.modified() == modified && Files.exists(stamp.index())) {
+				return stamp.index();
+			}
+
+			Path index = store.resolve(Checksum.sha256Hex(path.toFile()) + ".jar");
+
+			if (!Files.exists(index)) {
+				LOGGER.info(":indexing classpath jar {}", path.getFileName());
+				writeIndex(path, index);
+			}
+
+			FILE_STAMPS.put(key, new FileStamp(size, modified, index));
+			return index;
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to index classpath jar {}, it will be read directly", path, e);
+			return path;
+		}
+	}
+
+	private static void writeIndex(Path input, Path output) throws IOException {
+		Files.createDirectories(output.getParent());
+		Path tempOutput = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+
+		try {
+			try (ZipFile zipFile = new ZipFile(input.toFile());
+					ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempOutput)))) {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+
+					if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+						continue;
+					}
+
+					byte[] stub;
+
+					try (InputStream inputStream = zipFile.getInputStream(entry)) {
+						stub = createStub(inputStream.readAllBytes());
+					}
+
+					out.putNextEntry(new ZipEntry(entry.getName()));
+					out.write(stub);
+					out.closeEntry();
+				}
+			}
+
+			Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempOutput);
+		}
+	}
+
+	private static byte[] createStub(byte[] classBytes) {
+		ClassReader reader = new ClassReader(classBytes);
+		ClassWriter writer = new ClassWriter(0);
+		reader.accept(new StubClassVisitor(writer), ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return writer.toByteArray();
+	}
+
+	// The stamps are shared by every store in the daemon, so they are keyed by the store as well as the jar
+	private record FileKey(Path store, Path path) {
+	}
+
+	private record FileStamp(long size, long modified, Path index) {
+	}
+
+	private static final class StubClassVisitor extends ClassVisitor {
+		StubClassVisitor(ClassVisitor classVisitor) {
+			super(Opcodes.ASM9, classVisitor);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			return null;
+		}
+
+		@Override
+		public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+			return null;
+		}
+
+		@Override
+		public void visitAttribute(Attribute attribute) {
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			FieldVisitor fieldVisitor = super.visitField(access, name, descriptor, signature, value);
+
+			return fieldVisitor == null ? null : new FieldVisitor(Opcodes.ASM9, fieldVisitor) {
+				@Override
+				public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+					return null;
+				}
+
+				@Override
+				public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+					return null;
+				}
+
+				@Override
+				public void visitAttribute(Attribute attribute) {
+				}
+			};
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+			return methodVisitor == null ? null : new MethodVisitor(Opcodes.ASM9, methodVisitor) {
+				@Override
+				public void visitParameter(String name, int access) {
+				}
+
+				@Override
+				public AnnotationVisitor visitAnnotationDefault() {
+					return null;
+				}
+
+				@Override
+				public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+					return null;
+				}
+
+				@Override
+				public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+					return null;
+				}
+
+				@Override
+				public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+				}
+
+				@Override
+				public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+					return null;
+				}
+
+				@Override
+				public void visitAttribute(Attribute attribute) {
+				}
+			};
+		}
+	}
+}
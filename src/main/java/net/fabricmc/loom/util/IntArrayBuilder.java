@@ -0,0 +1,69 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+/**
+ * A growable array of primitive ints, for building large tables without boxing every value.
+ */
+public final class IntArrayBuilder {
+	private int[] data;
+	private int size;
+
+	public IntArrayBuilder() {
+		this(256);
+	}
+
+	public IntArrayBuilder(int initialCapacity) {
+		this.data = new int[Math.max(initialCapacity, 1)];
+	}
+
+	public void add(int value) {
+		if (size == data.length) {
+			int[] newData = new int[data.length * 2];
+			System.arraycopy(data, 0, newData, 0, size);
+			data = newData;
+		}
+
+		data[size++] = value;
+	}
+
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+
+		return data[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] toArray() {
+		int[] result = new int[size];
+		System.arraycopy(data, 0, result, 0, size);
+		return result;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.tinyremapper.TinyRemapper;
+
+/**
+ * Remaps a jar in bounded batches of classes, for builds that can't hold every input class in memory at once.
+ *
+ * <p>Each batch is remapped by its own {@link TinyRemapper}, with the hierarchy (usually the {@link ClasspathIndex} stubs of the classpath
+ * and of the input jar itself) on the classpath. Only the hierarchy and one batch of class bytes are resident at a time,
+ * and the output of each batch is written before the next one is read.
+ *
+ * <p>tiny-remapper keeps every input it has read until it is finished, so a batch can't reuse the remapper of the previous one.
+ * Each batch reads the hierarchy again: a remap in N batches reads the hierarchy N times, trading wall time for the memory bound.
+ * This is why the hierarchy should be made of {@link ClasspathIndex} stubs, which are much cheaper to read than the jars.
+ * The number of batches and the time taken are logged at info level.
+ *
+ * <p>This is enabled by setting the {@code fabric.loom.remapMemoryBudget} system property to the size in megabytes of a batch of classes.
+ */
+public final class StreamingRemapper {
+	private static final Logger LOGGER = Logging.getLogger(StreamingRemapper.class);
+	private static final String PROPERTY = "fabric.loom.remapMemoryBudget";
+
+	private final RemapperFactory remapperFactory;
+	private final Path[] hierarchy;
+	private final long batchSize;
+
+	public StreamingRemapper(RemapperFactory remapperFactory, Path[] hierarchy) {
+		this(remapperFactory, hierarchy, getMemoryBudget());
+	}
+
+	public StreamingRemapper(RemapperFactory remapperFactory, Path[] hierarchy, long batchSize) {
+		this.remapperFactory = remapperFactory;
+		this.hierarchy = hierarchy;
+		this.batchSize = batchSize;
+	}
+
+	public static boolean isEnabled() {
+		return getMemoryBudget() > 0;
+	}
+
+	/**
+	 * Returns the memory budget in bytes, or 0 when remapping isn't memory bounded.
+	 */
+	public static long getMemoryBudget() {
+		String property = System.getProperty(PROPERTY);
+
+		if (property == null || property.isBlank()) {
+			return 0;
+		}
+
+		return Long.parseLong(property.trim()) * 1024 * 1024;
+	}
+
+	/**
+	 * Remaps the classes of the input jar, non class files are not passed to the output.
+	 *
+	 * @param remapperConsumer called with the remapper of the first batch before it is applied, or null
+	 */
+	public void remap(Path input, BiConsumer<String, byte[]> output, Consumer<Remapper> remapperConsumer) throws IOException {
+		Path batchJar = Files.createTempFile("loom-remap-batch", ".jar");
+		long start = System.currentTimeMillis();
+		int batches = 0;
+
+		try (ZipFile zipFile = new ZipFile(input.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			boolean first = true;
+
+			while (entries.hasMoreElements()) {
+				boolean empty = true;
+
+				try (ZipOutputStream batch = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(batchJar)))) {
+					long size = 0;
+
+					while (size < batchSize && entries.hasMoreElements()) {
+						ZipEntry entry = entries.nextElement();
+
+						if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+							continue;
+						}
+
+						batch.putNextEntry(new ZipEntry(entry.getName()));
+
+						try (InputStream inputStream = zipFile.getInputStream(entry)) {
+							size += inputStream.transferTo(batch);
+						}
+
+						batch.closeEntry();
+						empty = false;
+					}
+				}
+
+				if (empty) {
+					continue;
+				}
+
+				remapBatch(batchJar, output, first ? remapperConsumer : null);
+				first = false;
+				batches++;
+			}
+
+			if (first && remapperConsumer != null) {
+				// No classes to remap, the consumer still gets a remapper for the hierarchy
+				TinyRemapper remapper = remapperFactory.create();
+
+				try {
+					remapper.readClassPath(hierarchy);
+					remapperConsumer.accept(remapper.getRemapper());
+				} finally {
+					remapper.finish();
+				}
+			}
+		} finally {
+			Files.deleteIfExists(batchJar);
+		}
+
+		LOGGER.info(":remapped {} in {} batches ({} ms)", input.getFileName(), batches, System.currentTimeMillis() - start);
+	}
+
+	private void remapBatch(Path batchJar, BiConsumer<String, byte[]> output, Consumer<Remapper> remapperConsumer) throws IOException {
+		TinyRemapper remapper = remapperFactory.create();
+
+		try {
+			remapper.readClassPath(hierarchy);
+			remapper.readInputs(batchJar);
+
+			if (remapperConsumer != null) {
+				remapperConsumer.accept(remapper.getRemapper());
+			}
+
+			remapper.apply(output);
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	@FunctionalInterface
+	public interface RemapperFactory {
+		TinyRemapper create() throws IOException;
+	}
+}
@@ -24,6 +24,15 @@
 
 package net.fabricmc.loom.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.objectweb.asm.commons.Remapper;
+
 import net.fabricmc.mapping.tree.ClassDef;
 import net.fabricmc.mapping.tree.FieldDef;
 import net.fabricmc.mapping.tree.LocalVariableDef;
@@ -33,39 +42,179 @@ import net.fabricmc.mapping.tree.TinyTree;
 import net.fabricmc.tinyremapper.IMappingProvider;
 
 public class TinyRemapperMappingsHelper {
+	// Trees are shared by MappingsCache per mappings content, so the tree identity stands in for the mappings hash.
+	private static final Map<TinyTree, Map<String, RemapTable>> TABLES = Collections.synchronizedMap(new WeakHashMap<>());
+
 	private TinyRemapperMappingsHelper() { }
 
-	private static IMappingProvider.Member memberOf(String className, String memberName, String descriptor) {
-		return new IMappingProvider.Member(className, memberName, descriptor);
+	public static IMappingProvider create(TinyTree mappings, String from, String to, boolean remapLocalVariables) {
+		RemapTable table = getTable(mappings, from, to);
+		return (acceptor) -> table.apply(acceptor, remapLocalVariables);
 	}
 
-	public static IMappingProvider create(TinyTree mappings, String from, String to, boolean remapLocalVariables) {
-		return (acceptor) -> {
+	/**
+	 * Returns an ASM remapper backed by the remap table, for remapping a few names without building a {@link net.fabricmc.tinyremapper.TinyRemapper}.
+	 *
+	 * <p>There is no class hierarchy, members are only found on the class that declares them.
+	 */
+	public static Remapper createAsmRemapper(TinyTree mappings, String from, String to) {
+		return getTable(mappings, from, to).createAsmRemapper();
+	}
+
+	/**
+	 * Returns the flattened remap table for the given namespaces, the table includes locals and can be replayed with or without them.
+	 */
+	private static RemapTable getTable(TinyTree mappings, String from, String to) {
+		Map<String, RemapTable> tables = TABLES.computeIfAbsent(mappings, tree -> new HashMap<>());
+
+		synchronized (tables) {
+			return tables.computeIfAbsent(from + "->" + to, key -> RemapTable.create(mappings, from, to));
+		}
+	}
+
+	private record RemapTable(String[] classNames,
+							String[] classTargets,
+							IMappingProvider.Member[] fields,
+							String[] fieldTargets,
+							IMappingProvider.Member[] methods,
+							String[] methodTargets,
+							int[] argMethods,
+							int[] argIndices,
+							String[] argTargets,
+							int[] varMethods,
+							int[] varData,
+							String[] varTargets) {
+		private static RemapTable create(TinyTree mappings, String from, String to) {
+			Map<String, String> strings = new HashMap<>();
+			List<String> classNames = new ArrayList<>();
+			List<String> classTargets = new ArrayList<>();
+			List<IMappingProvider.Member> fields = new ArrayList<>();
+			List<String> fieldTargets = new ArrayList<>();
+			List<IMappingProvider.Member> methods = new ArrayList<>();
+			List<String> methodTargets = new ArrayList<>();
+			IntArrayBuilder argMethods = new IntArrayBuilder();
+			IntArrayBuilder argIndices = new IntArrayBuilder();
+			List<String> argTargets = new ArrayList<>();
+			IntArrayBuilder varMethods = new IntArrayBuilder();
+			IntArrayBuilder varData = new IntArrayBuilder();
+			List<String> varTargets = new ArrayList<>();
+
 			for (ClassDef classDef : mappings.getClasses()) {
-				String className = classDef.getName(from);
-				acceptor.acceptClass(className, classDef.getName(to));
+				String className = intern(strings, classDef.getName(from));
+				classNames.add(className);
+				classTargets.add(intern(strings, classDef.getName(to)));
 
 				for (FieldDef field : classDef.getFields()) {
-					acceptor.acceptField(memberOf(className, field.getName(from), field.getDescriptor(from)), field.getName(to));
+					fields.add(new IMappingProvider.Member(className, intern(strings, field.getName(from)), intern(strings, field.getDescriptor(from))));
+					fieldTargets.add(intern(strings, field.getName(to)));
 				}
 
 				for (MethodDef method : classDef.getMethods()) {
-					IMappingProvider.Member methodIdentifier = memberOf(className, method.getName(from), method.getDescriptor(from));
-					acceptor.acceptMethod(methodIdentifier, method.getName(to));
-
-					if (remapLocalVariables) {
-						for (ParameterDef parameter : method.getParameters()) {
-							acceptor.acceptMethodArg(methodIdentifier, parameter.getLocalVariableIndex(), parameter.getName(to));
-						}
-
-						for (LocalVariableDef localVariable : method.getLocalVariables()) {
-							acceptor.acceptMethodVar(methodIdentifier, localVariable.getLocalVariableIndex(),
-											localVariable.getLocalVariableStartOffset(), localVariable.getLocalVariableTableIndex(),
-											localVariable.getName(to));
-						}
+					int methodIndex = methods.size();
+					methods.add(new IMappingProvider.Member(className, intern(strings, method.getName(from)), intern(strings, method.getDescriptor(from))));
+					methodTargets.add(intern(strings, method.getName(to)));
+
+					for (ParameterDef parameter : method.getParameters()) {
+						argMethods.add(methodIndex);
+						argIndices.add(parameter.getLocalVariableIndex());
+						argTargets.add(intern(strings, parameter.getName(to)));
 					}
+
+					for (LocalVariableDef localVariable : method.getLocalVariables()) {
+						varMethods.add(methodIndex);
+						varData.add(localVariable.getLocalVariableIndex());
+						varData.add(localVariable.getLocalVariableStartOffset());
+						varData.add(localVariable.getLocalVariableTableIndex());
+						varTargets.add(intern(strings, localVariable.getName(to)));
+					}
+				}
+			}
+
+			return new RemapTable(
+					classNames.toArray(new String[0]), classTargets.toArray(new String[0]),
+					fields.toArray(new IMappingProvider.Member[0]), fieldTargets.toArray(new String[0]),
+					methods.toArray(new IMappingProvider.Member[0]), methodTargets.toArray(new String[0]),
+					argMethods.toArray(), argIndices.toArray(), argTargets.toArray(new String[0]),
+					varMethods.toArray(), varData.toArray(), varTargets.toArray(new String[0])
+			);
+		}
+
+		private static String intern(Map<String, String> strings, String string) {
+			if (string == null) {
+				return null;
+			}
+
+			return strings.computeIfAbsent(string, s -> s);
+		}
+
+		private Remapper createAsmRemapper() {
+			Map<String, String> classes = new HashMap<>(classNames.length);
+			Map<String, String> members = new HashMap<>(fields.length + methods.length);
+
+			for (int i = 0; i < classNames.length; i++) {
+				if (classTargets[i] != null) {
+					classes.put(classNames[i], classTargets[i]);
 				}
 			}
-		};
+
+			for (int i = 0; i < fields.length; i++) {
+				if (fieldTargets[i] != null) {
+					members.put(getMemberKey(fields[i].owner, fields[i].name, fields[i].desc), fieldTargets[i]);
+				}
+			}
+
+			for (int i = 0; i < methods.length; i++) {
+				if (methodTargets[i] != null) {
+					members.put(getMemberKey(methods[i].owner, methods[i].name, methods[i].desc), methodTargets[i]);
+				}
+			}
+
+			return new Remapper() {
+				@Override
+				public String map(String internalName) {
+					return classes.getOrDefault(internalName, internalName);
+				}
+
+				@Override
+				public String mapFieldName(String owner, String name, String descriptor) {
+					return members.getOrDefault(getMemberKey(owner, name, descriptor), name);
+				}
+
+				@Override
+				public String mapMethodName(String owner, String name, String descriptor) {
+					return members.getOrDefault(getMemberKey(owner, name, descriptor), name);
+				}
+			};
+		}
+
+		private static String getMemberKey(String owner, String name, String desc) {
+			return owner + '/' + name + desc;
+		}
+
+		private void apply(IMappingProvider.MappingAcceptor acceptor, boolean remapLocalVariables) {
+			for (int i = 0; i < classNames.length; i++) {
+				acceptor.acceptClass(classNames[i], classTargets[i]);
+			}
+
+			for (int i = 0; i < fields.length; i++) {
+				acceptor.acceptField(fields[i], fieldTargets[i]);
+			}
+
+			for (int i = 0; i < methods.length; i++) {
+				acceptor.acceptMethod(methods[i], methodTargets[i]);
+			}
+
+			if (!remapLocalVariables) {
+				return;
+			}
+
+			for (int i = 0; i < argMethods.length; i++) {
+				acceptor.acceptMethodArg(methods[argMethods[i]], argIndices[i], argTargets[i]);
+			}
+
+			for (int i = 0; i < varMethods.length; i++) {
+				acceptor.acceptMethodVar(methods[varMethods[i]], varData[i * 3], varData[i * 3 + 1], varData[i * 3 + 2], varTargets[i]);
+			}
+		}
 	}
 }
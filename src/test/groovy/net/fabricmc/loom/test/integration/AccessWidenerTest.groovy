@@ -50,6 +50,24 @@ class AccessWidenerTest extends Specification implements ProjectTestTrait, Archi
 			PRE_RELEASE_GRADLE  | _
 	}
 
+	@Unroll
+	def "accesswidener overlay (gradle #gradle)"() {
+		setup:
+			System.setProperty("fabric.loom.processedJarOverlay", "true")
+		when:
+			def result = create("printMinecraftNamed", gradle)
+		then:
+			result.task(":printMinecraftNamed").outcome == SUCCESS
+			result.output.contains("minecraftNamed: minecraft-overlay-")
+			result.output.find(/minecraftNamed: minecraft-[^\s]+-mapped-/) != null
+		cleanup:
+			System.clearProperty("fabric.loom.processedJarOverlay")
+		where:
+			gradle              | _
+			DEFAULT_GRADLE      | _
+			PRE_RELEASE_GRADLE  | _
+	}
+
 	String expected() {
 		new File("src/test/resources/accesswidener/expected.accesswidener").text
 	}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.providers.mappings.binary.BinaryMappings
+import net.fabricmc.mapping.tree.TinyTree
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class BinaryMappingsTest extends Specification {
+    static final String MAPPINGS = """tiny\t2\t0\tofficial\tintermediary\tnamed
+c\ta\tnet/minecraft/class_1\tnet/minecraft/Example
+\tc\tAn example class
+\tf\tI\tb\tfield_1\tcount
+\tm\t(La;)V\tc\tmethod_1\tcopy
+\t\tc\tCopies the example
+\t\tp\t1\t\t\tother
+"""
+
+    def "binary mappings match the tiny file"() {
+        given:
+            Path tinyFile = Files.createTempFile("mappings", ".tiny")
+            tinyFile.text = MAPPINGS
+        when:
+            TinyTree parsed = BinaryMappings.read(tinyFile)
+            TinyTree mapped = BinaryMappings.read(tinyFile)
+            def clazz = mapped.classes[0]
+            def method = clazz.methods[0]
+        then:
+            Files.exists(BinaryMappings.getBinaryPath(tinyFile))
+            mapped.class.simpleName == "MappedTinyTree"
+            mapped.metadata.namespaces == parsed.metadata.namespaces
+            clazz.getName("named") == "net/minecraft/Example"
+            clazz.comment == "An example class"
+            clazz.fields[0].getName("intermediary") == "field_1"
+            clazz.fields[0].getDescriptor("named") == "I"
+            method.getName("named") == "copy"
+            method.getDescriptor("named") == "(Lnet/minecraft/Example;)V"
+            method.comment == "Copies the example"
+            method.parameters[0].localVariableIndex == 1
+            method.parameters[0].getName("named") == "other"
+            mapped.defaultNamespaceClassMap["a"].getName("intermediary") == "net/minecraft/class_1"
+    }
+
+    def "binary mappings are recreated when the tiny file changes"() {
+        given:
+            Path tinyFile = Files.createTempFile("mappings", ".tiny")
+            tinyFile.text = MAPPINGS
+            BinaryMappings.read(tinyFile)
+        when:
+            tinyFile.text = MAPPINGS.replace("copy", "duplicate")
+            TinyTree mappings = BinaryMappings.read(tinyFile)
+        then:
+            mappings.classes[0].methods[0].getName("named") == "duplicate"
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.util.ClasspathIndex
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class ClasspathIndexTest extends Specification {
+    def "index keeps the class hierarchy and drops code and resources"() {
+        given:
+            Path store = Files.createTempDirectory("classpath_index")
+            Path jar = Files.createTempFile("classpath", ".jar")
+            String className = ClasspathIndexTest.class.name.replace('.', '/') + ".class"
+
+            new ZipOutputStream(Files.newOutputStream(jar)).withCloseable {
+                it.putNextEntry(new ZipEntry(className))
+                it.write(ClasspathIndexTest.class.getResourceAsStream("/" + className).bytes)
+                it.putNextEntry(new ZipEntry("assets/example.txt"))
+                it.write("Hello".bytes)
+            }
+        when:
+            Path index = new ClasspathIndex(store).index(jar)
+            ClassNode classNode = new ClassNode()
+
+            new ZipFile(index.toFile()).withCloseable {
+                assert it.getEntry("assets/example.txt") == null
+                new ClassReader(it.getInputStream(it.getEntry(className)).bytes).accept(classNode, 0)
+            }
+        then:
+            index != jar
+            index.startsWith(store)
+            classNode.superName == "spock/lang/Specification"
+            !classNode.methods.empty
+            classNode.methods.every { it.instructions.size() == 0 }
+            new ClasspathIndex(store).index(jar) == index
+    }
+
+    def "directories are not indexed"() {
+        given:
+            Path store = Files.createTempDirectory("classpath_index")
+            Path directory = Files.createTempDirectory("classes")
+        expect:
+            new ClasspathIndex(store).index(directory) == directory
+    }
+}
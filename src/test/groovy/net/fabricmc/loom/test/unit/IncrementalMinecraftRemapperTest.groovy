@@ -0,0 +1,155 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.providers.mappings.MappingsCache
+import net.fabricmc.loom.configuration.providers.minecraft.IncrementalMinecraftRemapper
+import net.fabricmc.loom.configuration.providers.minecraft.IncrementalMinecraftRemapper.MappingsDiff
+import net.fabricmc.loom.util.TinyRemapperMappingsHelper
+import net.fabricmc.tinyremapper.OutputConsumerPath
+import net.fabricmc.tinyremapper.TinyRemapper
+import org.gradle.api.logging.Logging
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class IncrementalMinecraftRemapperTest extends Specification {
+    static final String MAPPINGS = """tiny\t2\t0\tofficial\tintermediary\tnamed
+c\ta\tnet/minecraft/class_1\tnet/minecraft/Example
+c\tb\tnet/minecraft/class_2\tnet/minecraft/Holder
+\tf\tLa;\ta\tfield_1\texample
+c\tc\tnet/minecraft/class_3\tnet/minecraft/Unrelated
+"""
+    static final String RENAMED_MAPPINGS = MAPPINGS.replace("net/minecraft/Example", "net/minecraft/Renamed")
+
+    def "mappings diff finds the renamed class and the classes referencing it"() {
+        given:
+            Path input = createInputJar()
+        when:
+            def diff = MappingsDiff.create(readMappings(MAPPINGS), readMappings(RENAMED_MAPPINGS), "official", "named")
+        then:
+            !diff.empty
+            diff.changedClasses() == ["a"] as Set
+            diff.changedMembers().empty
+            diff.findAffectedClasses(input) == ["a", "b"] as Set
+    }
+
+    def "mappings diff of the same mappings is empty"() {
+        expect:
+            MappingsDiff.create(readMappings(MAPPINGS), readMappings(MAPPINGS), "official", "named").empty
+    }
+
+    def "renamed class is rewritten and other classes are copied"() {
+        given:
+            Path input = createInputJar()
+            Path oldMappings = writeMappings(MAPPINGS)
+            Path newMappings = writeMappings(RENAMED_MAPPINGS)
+            Path previousOutput = Files.createTempFile("previous", ".jar")
+            Path output = Files.createTempFile("output", ".jar")
+            Path stateFile = Files.createTempDirectory("remap_state").resolve("state.properties")
+            def incrementalRemapper = new IncrementalMinecraftRemapper(stateFile, Logging.getLogger(IncrementalMinecraftRemapperTest))
+
+            Files.delete(previousOutput)
+            TinyRemapper fullRemapper = createRemapper(oldMappings)
+            new OutputConsumerPath.Builder(previousOutput).build().withCloseable {
+                fullRemapper.readInputs(input)
+                fullRemapper.apply(it)
+            }
+            fullRemapper.finish()
+            incrementalRemapper.saveState(previousOutput, oldMappings, "input")
+        when:
+            TinyRemapper remapper = createRemapper(newMappings)
+            boolean remapped = incrementalRemapper.remap(remapper, input, "input", [input] as Path[], output, newMappings, "official", "named")
+            remapper.finish()
+        then:
+            remapped
+            new ZipFile(output.toFile()).withCloseable { out ->
+                new ZipFile(previousOutput.toFile()).withCloseable { previous ->
+                    assert out.getEntry("net/minecraft/Example.class") == null
+                    assert out.getEntry("net/minecraft/Renamed.class") != null
+                    assert readClass(out, "net/minecraft/Holder").fields[0].desc == "Lnet/minecraft/Renamed;"
+                    assert out.getInputStream(out.getEntry("net/minecraft/Unrelated.class")).bytes == previous.getInputStream(previous.getEntry("net/minecraft/Unrelated.class")).bytes
+                }
+                true
+            }
+    }
+
+    static TinyRemapper createRemapper(Path mappings) {
+        return TinyRemapper.newRemapper()
+                .withMappings(TinyRemapperMappingsHelper.create(MappingsCache.INSTANCE.get(mappings), "official", "named", true))
+                .build()
+    }
+
+    static def readMappings(String mappings) {
+        return MappingsCache.INSTANCE.get(writeMappings(mappings))
+    }
+
+    static Path writeMappings(String mappings) {
+        Path file = Files.createTempFile("mappings", ".tiny")
+        file.text = mappings
+        return file
+    }
+
+    static ClassNode readClass(ZipFile zipFile, String name) {
+        ClassNode classNode = new ClassNode()
+        new ClassReader(zipFile.getInputStream(zipFile.getEntry(name + ".class")).bytes).accept(classNode, 0)
+        return classNode
+    }
+
+    static Path createInputJar() {
+        Path jar = Files.createTempFile("minecraft", ".jar")
+
+        new ZipOutputStream(Files.newOutputStream(jar)).withCloseable {
+            it.putNextEntry(new ZipEntry("a.class"))
+            it.write(createClass("a", null))
+            it.putNextEntry(new ZipEntry("b.class"))
+            it.write(createClass("b", "La;"))
+            it.putNextEntry(new ZipEntry("c.class"))
+            it.write(createClass("c", null))
+        }
+
+        return jar
+    }
+
+    static byte[] createClass(String name, String fieldDescriptor) {
+        ClassWriter writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+
+        if (fieldDescriptor != null) {
+            writer.visitField(Opcodes.ACC_PUBLIC, "a", fieldDescriptor, null, null).visitEnd()
+        }
+
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+}
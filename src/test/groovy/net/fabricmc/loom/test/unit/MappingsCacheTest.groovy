@@ -0,0 +1,75 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.providers.mappings.MappingsCache
+import net.fabricmc.loom.configuration.providers.mappings.binary.MappedTinyTree
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class MappingsCacheTest extends Specification {
+    def "memory mapped trees are charged by their heap estimate"() {
+        given:
+            Path mappings = writeMappings("a", "b")
+            // The first load parses the tiny file and writes the binary copy, later loads map it
+            def parsed = new MappingsCache(Long.MAX_VALUE)
+            def parsedTree = parsed.get(mappings)
+            def cache = new MappingsCache(Long.MAX_VALUE)
+        when:
+            def tree = cache.get(mappings)
+        then:
+            !(parsedTree instanceof MappedTinyTree)
+            parsed.statistics.size() == MappingsCache.estimateHeapSize(parsedTree)
+            tree instanceof MappedTinyTree
+            cache.statistics.size() == tree.estimateHeapSize()
+            cache.statistics.size() != Files.size(mappings)
+    }
+
+    def "least recently used mappings are evicted once the heap estimate exceeds the budget"() {
+        given:
+            Path first = writeMappings("a", "b")
+            Path second = writeMappings("c", "d")
+            def warmup = new MappingsCache(Long.MAX_VALUE)
+            warmup.get(first)
+            warmup.get(second)
+            long treeSize = MappingsCache.estimateHeapSize(warmup.get(first))
+            def cache = new MappingsCache(treeSize + treeSize / 2 as long)
+        when:
+            cache.get(first)
+            cache.get(second)
+        then:
+            cache.statistics.entries() == 1
+            cache.statistics.evictions() == 1
+            cache.statistics.size() == treeSize
+    }
+
+    static Path writeMappings(String... classes) {
+        Path file = Files.createTempFile("mappings", ".tiny")
+        file.text = "tiny\t2\t0\tofficial\tnamed\n" + classes.collect { "c\t$it\tnet/minecraft/${it.toUpperCase()}\n" }.join("")
+        return file
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.mods.ModMetadataIndex
+import net.fabricmc.loom.util.Checksum
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ModMetadataIndexTest extends Specification {
+    static final String MOD_JSON = '{"id": "modid", "accessWidener": "modid.accesswidener", "jars": [{"file": "META-INF/jars/nested.jar"}]}'
+
+    Path store = Files.createTempDirectory("mod_metadata")
+
+    def "mod metadata is read and stored"() {
+        given:
+            File jar = createJar("fabric.mod.json": MOD_JSON)
+        when:
+            def metadata = new ModMetadataIndex(store).get(jar)
+        then:
+            metadata.isMod()
+            metadata.accessWidener() == "modid.accesswidener"
+            metadata.nestedJars() == ["META-INF/jars/nested.jar"]
+            metadata.installerJson() == null
+            Files.exists(getEntry(jar))
+    }
+
+    def "stored metadata is used without reading the jar"() {
+        given:
+            File jar = createJar("fabric.mod.json": MOD_JSON)
+            new ModMetadataIndex(store).get(jar)
+            getEntry(jar).text = getEntry(jar).text.replace("modid.accesswidener", "stored.accesswidener")
+            touch(jar)
+        when:
+            def metadata = new ModMetadataIndex(store).get(jar)
+        then:
+            metadata.accessWidener() == "stored.accesswidener"
+    }
+
+    def "jar without fabric.mod.json is not a mod"() {
+        given:
+            File jar = createJar("fabric-installer.json": '{"version": 1}')
+        when:
+            def metadata = new ModMetadataIndex(store).get(jar)
+        then:
+            !metadata.isMod()
+            metadata.installerJson().get("version").asInt == 1
+            Files.exists(getEntry(jar))
+    }
+
+    def "file that is not a jar is not a mod and is not stored"() {
+        given:
+            File file = File.createTempFile("not_a_jar", ".jar")
+            file.text = "Hello"
+        when:
+            def metadata = new ModMetadataIndex(store).get(file)
+        then:
+            metadata == ModMetadataIndex.ModMetadata.NONE
+            !Files.exists(getEntry(file))
+    }
+
+    def "corrupt index entry is replaced"() {
+        given:
+            File jar = createJar("fabric.mod.json": MOD_JSON)
+            new ModMetadataIndex(store).get(jar)
+            getEntry(jar).text = "{ broken"
+            touch(jar)
+        when:
+            def metadata = new ModMetadataIndex(store).get(jar)
+        then:
+            metadata.isMod()
+            metadata.accessWidener() == "modid.accesswidener"
+            getEntry(jar).text != "{ broken"
+    }
+
+    def "corrupt fabric.mod.json fails and is not cached"() {
+        given:
+            File jar = createJar("fabric.mod.json": "{ broken")
+        when:
+            new ModMetadataIndex(store).get(jar)
+        then:
+            thrown(RuntimeException)
+            !Files.exists(getEntry(jar))
+        when:
+            new ModMetadataIndex(store).get(jar)
+        then:
+            thrown(RuntimeException)
+    }
+
+    Path getEntry(File jar) {
+        return store.resolve("v1").resolve(Checksum.sha256Hex(jar) + ".json")
+    }
+
+    static void touch(File file) {
+        file.setLastModified(file.lastModified() + 2000)
+    }
+
+    static File createJar(Map<String, String> entries) {
+        File jar = File.createTempFile("mod", ".jar")
+
+        new ZipOutputStream(jar.newOutputStream()).withCloseable { out ->
+            entries.each { name, content ->
+                out.putNextEntry(new ZipEntry(name))
+                out.write(content.bytes)
+            }
+        }
+
+        return jar
+    }
+}
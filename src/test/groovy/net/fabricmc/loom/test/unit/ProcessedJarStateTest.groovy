@@ -0,0 +1,183 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.configuration.processors.ClassVisitorJarProcessor
+import net.fabricmc.loom.configuration.processors.JarProcessorManager
+import net.fabricmc.loom.configuration.processors.ProcessedJarState
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class ProcessedJarStateTest extends Specification {
+    def "only classes with a changed fingerprint are transformed again"() {
+        given:
+            Path input = createInputJar()
+            Path firstOutput = Files.createTempFile("processed", ".jar")
+            Path secondOutput = Files.createTempFile("processed", ".jar")
+            def first = new FieldAddingProcessor(a: "1", b: "1")
+            def fingerprints = new JarProcessorManager([first]).process(input.toFile(), firstOutput.toFile(), false, null)
+            def previous = new ProcessedJarState("input", firstOutput, fingerprints)
+        when:
+            def second = new FieldAddingProcessor(a: "1", b: "2")
+            new JarProcessorManager([second]).process(input.toFile(), secondOutput.toFile(), false, previous)
+        then:
+            first.transformed == ["a", "b"] as Set
+            second.transformed == ["b"] as Set
+            readBytes(secondOutput, "a") == readBytes(firstOutput, "a")
+            readClass(secondOutput, "b").fields*.name == ["b_2"]
+            readBytes(secondOutput, "c") == readBytes(input, "c")
+    }
+
+    def "classes that are no longer transformed are copied from the input"() {
+        given:
+            Path input = createInputJar()
+            Path firstOutput = Files.createTempFile("processed", ".jar")
+            Path secondOutput = Files.createTempFile("processed", ".jar")
+            def fingerprints = new JarProcessorManager([new FieldAddingProcessor(a: "1", b: "1")]).process(input.toFile(), firstOutput.toFile(), false, null)
+            def previous = new ProcessedJarState("input", firstOutput, fingerprints)
+        when:
+            def second = new FieldAddingProcessor(a: "1")
+            new JarProcessorManager([second]).process(input.toFile(), secondOutput.toFile(), false, previous)
+        then:
+            second.transformed.empty
+            readBytes(secondOutput, "a") == readBytes(firstOutput, "a")
+            readBytes(secondOutput, "b") == readBytes(input, "b")
+    }
+
+    def "processed entries keep the time of the input entries"() {
+        given:
+            Path input = createInputJar()
+            Path output = Files.createTempFile("processed", ".jar")
+        when:
+            new JarProcessorManager([new FieldAddingProcessor(a: "1")]).process(input.toFile(), output.toFile(), false, null)
+        then:
+            ["a", "b", "c"].every { entryTime(output, it) == entryTime(input, it) }
+    }
+
+    def "jar inside the root is stored relative to it"() {
+        given:
+            Path root = Files.createTempDirectory("cache")
+            Path stateFile = Files.createTempDirectory("project").resolve("processed_jar.properties")
+            Path movedRoot = Files.createTempDirectory("moved_cache")
+            Path jar = root.resolve("minecraft/minecraft-processed.jar")
+        when:
+            new ProcessedJarState("input", jar, [a: "1"]).write(stateFile, root)
+            def state = ProcessedJarState.read(stateFile, movedRoot)
+        then:
+            !stateFile.text.contains(root.toString().replace('\\', '\\\\'))
+            state.input() == "input"
+            state.jar() == movedRoot.resolve("minecraft/minecraft-processed.jar")
+            state.classes() == [a: "1"]
+    }
+
+    /**
+     * Adds a field named after the class and its fingerprint to every class it targets.
+     */
+    static class FieldAddingProcessor implements ClassVisitorJarProcessor {
+        final Map<String, String> targets
+        final Set<String> transformed = [] as Set
+
+        FieldAddingProcessor(Map<String, String> targets) {
+            this.targets = targets
+        }
+
+        @Override
+        boolean transformsClass(String className) {
+            return targets.containsKey(className)
+        }
+
+        @Override
+        ClassVisitor createClassVisitor(String className, ClassVisitor next) {
+            transformed.add(className)
+
+            return new ClassVisitor(Opcodes.ASM9, next) {
+                @Override
+                void visitEnd() {
+                    super.visitField(Opcodes.ACC_PUBLIC, className + "_" + targets[className], "I", null, null).visitEnd()
+                    super.visitEnd()
+                }
+            }
+        }
+
+        @Override
+        Map<String, String> getClassFingerprints() {
+            return targets
+        }
+
+        @Override
+        void setup() {
+        }
+
+        @Override
+        boolean isInvalid(File file) {
+            return false
+        }
+    }
+
+    static Path createInputJar() {
+        Path jar = Files.createTempFile("mapped", ".jar")
+
+        new ZipOutputStream(Files.newOutputStream(jar)).withCloseable {
+            ["a", "b", "c"].each { name ->
+                ClassWriter writer = new ClassWriter(0)
+                writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+                writer.visitEnd()
+
+                it.putNextEntry(new ZipEntry(name + ".class"))
+                it.write(writer.toByteArray())
+            }
+        }
+
+        return jar
+    }
+
+    static byte[] readBytes(Path jar, String className) {
+        new ZipFile(jar.toFile()).withCloseable {
+            return it.getInputStream(it.getEntry(className + ".class")).bytes
+        }
+    }
+
+    static long entryTime(Path jar, String className) {
+        new ZipFile(jar.toFile()).withCloseable {
+            return it.getEntry(className + ".class").time
+        }
+    }
+
+    static ClassNode readClass(Path jar, String className) {
+        ClassNode classNode = new ClassNode()
+        new ClassReader(readBytes(jar, className)).accept(classNode, 0)
+        return classNode
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import net.fabricmc.loom.util.StreamingRemapper
+import net.fabricmc.tinyremapper.IMappingProvider
+import net.fabricmc.tinyremapper.TinyRemapper
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.commons.Remapper
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class StreamingRemapperTest extends Specification {
+    def "streaming remap matches the in memory remap"() {
+        given:
+            Path input = createInputJar()
+            Map<String, byte[]> expected = new ConcurrentHashMap<>()
+            TinyRemapper remapper = createRemapper()
+            remapper.readInputs(input)
+            remapper.apply { name, bytes -> expected.put(name, bytes) }
+            remapper.finish()
+        when:
+            Map<String, byte[]> actual = new ConcurrentHashMap<>()
+            new StreamingRemapper(StreamingRemapperTest::createRemapper, [input] as Path[], 1).remap(input, { name, bytes -> actual.put(name, bytes) }, null)
+        then:
+            actual.keySet() == ["net/minecraft/Example", "net/minecraft/Child", "c"] as Set
+            actual.keySet() == expected.keySet()
+            actual.every { name, bytes -> Arrays.equals(bytes, expected[name]) }
+    }
+
+    def "each batch is remapped separately"() {
+        given:
+            Path input = createInputJar()
+            int remappers = 0
+            List<Remapper> firstBatchRemappers = []
+        when:
+            new StreamingRemapper({ remappers++; createRemapper() }, [input] as Path[], batchSize).remap(input, { name, bytes -> }, { firstBatchRemappers.add(it) })
+        then:
+            remappers == expectedBatches
+            firstBatchRemappers.size() == 1
+            firstBatchRemappers[0].map("a") == "net/minecraft/Example"
+        where:
+            batchSize       | expectedBatches
+            1               | 3
+            1024 * 1024     | 1
+    }
+
+    static TinyRemapper createRemapper() {
+        return TinyRemapper.newRemapper()
+                .withMappings { IMappingProvider.MappingAcceptor out ->
+                    out.acceptClass("a", "net/minecraft/Example")
+                    out.acceptClass("b", "net/minecraft/Child")
+                    out.acceptMethod(new IMappingProvider.Member("a", "a", "()V"), "run")
+                }
+                .build()
+    }
+
+    static Path createInputJar() {
+        Path jar = Files.createTempFile("minecraft", ".jar")
+
+        new ZipOutputStream(Files.newOutputStream(jar)).withCloseable {
+            // The child overrides a method of its parent, the override is only renamed when the parent is in the hierarchy
+            it.putNextEntry(new ZipEntry("a.class"))
+            it.write(createClass("a", "java/lang/Object"))
+            it.putNextEntry(new ZipEntry("b.class"))
+            it.write(createClass("b", "a"))
+            it.putNextEntry(new ZipEntry("c.class"))
+            it.write(createClass("c", "java/lang/Object"))
+            it.putNextEntry(new ZipEntry("assets/example.txt"))
+            it.write("Hello".bytes)
+        }
+
+        return jar
+    }
+
+    static byte[] createClass(String name, String superName) {
+        ClassWriter writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        writer.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null).visitEnd()
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.layeredmappings
+
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingSpec
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingsDependency
+import net.fabricmc.loom.configuration.providers.mappings.intermediary.IntermediaryMappingsSpec
+import net.fabricmc.loom.configuration.providers.mappings.parchment.ParchmentMappingsSpec
+
+import java.util.zip.ZipFile
+
+class LayeredMappingsDependencyTest extends LayeredMappingsSpecification {
+    def "changing a layer input changes the resolved mappings"() {
+        setup:
+            mockMappingsProvider.intermediaryTinyFile() >> writeIntermediary(INTERMEDIARY_FIXTURE)
+            mockMappingsProvider.getMappingsDir() >> new File(tempDir, "mappings").toPath()
+            def spec = new LayeredMappingSpec([new IntermediaryMappingsSpec(), new ParchmentMappingsSpec(PARCHMENT_FIXTURE_NOTATION, false)])
+        when:
+            withMavenFile(PARCHMENT_FIXTURE_NOTATION, writeParchmentZip(PARCHMENT_FIXTURE))
+            def dependency = new LayeredMappingsDependency(mappingContext, spec, spec.version)
+            File mappings = dependency.resolve().first()
+            String version = dependency.resolvedVersion
+
+            withMavenFile(PARCHMENT_FIXTURE_NOTATION, writeParchmentZip(PARCHMENT_FIXTURE.replace("\"other\"", "\"source\"")))
+            def changedDependency = new LayeredMappingsDependency(mappingContext, spec, spec.version)
+            File changedMappings = changedDependency.resolve().first()
+        then:
+            dependency.version == changedDependency.version
+            version != changedDependency.resolvedVersion
+            mappings != changedMappings
+            readTiny(mappings).contains("\tother")
+            readTiny(changedMappings).contains("\tsource")
+            !readTiny(changedMappings).contains("\tother")
+    }
+
+    def "unchanged layer inputs resolve to the same mappings"() {
+        setup:
+            mockMappingsProvider.intermediaryTinyFile() >> writeIntermediary(INTERMEDIARY_FIXTURE)
+            mockMappingsProvider.getMappingsDir() >> new File(tempDir, "mappings").toPath()
+            withMavenFile(PARCHMENT_FIXTURE_NOTATION, writeParchmentZip(PARCHMENT_FIXTURE))
+            def spec = new LayeredMappingSpec([new IntermediaryMappingsSpec(), new ParchmentMappingsSpec(PARCHMENT_FIXTURE_NOTATION, false)])
+        when:
+            def first = new LayeredMappingsDependency(mappingContext, spec, spec.version)
+            def second = new LayeredMappingsDependency(mappingContext, spec, spec.version)
+        then:
+            first.resolve() == second.resolve()
+            first.resolvedVersion == second.resolvedVersion
+    }
+
+    static String readTiny(File mappings) {
+        new ZipFile(mappings).withCloseable {
+            return it.getInputStream(it.getEntry("mappings/mappings.tiny")).text
+        }
+    }
+}
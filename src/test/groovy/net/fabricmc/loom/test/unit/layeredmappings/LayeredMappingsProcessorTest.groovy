@@ -0,0 +1,225 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.layeredmappings
+
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingSpec
+import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingsProcessor
+import net.fabricmc.loom.configuration.providers.mappings.MappingLayer
+import net.fabricmc.loom.configuration.providers.mappings.MappingNamespace
+import net.fabricmc.loom.configuration.providers.mappings.intermediary.IntermediaryMappingLayer
+import net.fabricmc.loom.configuration.providers.mappings.parchment.ParchmentMappingLayer
+import net.fabricmc.mappingio.MappingVisitor
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch
+import net.fabricmc.mappingio.format.Tiny2Reader
+import net.fabricmc.mappingio.tree.MappingTree
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+
+class LayeredMappingsProcessorTest extends LayeredMappingsSpecification {
+    static final String OFFICIAL_RENAME = """tiny\t2\t0\tofficial\tnamed
+c\ta\tnet/minecraft/Example
+\tf\tI\ta\tcount
+\tm\t(La;)V\tb\tcopy
+"""
+    static final String PARCHMENT_RENAMED = """{
+  "version": "1.1.0",
+  "classes": [
+    {
+      "name": "net/minecraft/Example",
+      "javadoc": ["Replaced"],
+      "methods": [
+        {
+          "name": "copy",
+          "descriptor": "(Lnet/minecraft/Example;)V",
+          "parameters": [ { "index": 1, "name": "other", "javadoc": "The example to copy" } ]
+        }
+      ]
+    }
+  ]
+}
+"""
+    static final String OFFICIAL_CONSTRUCTOR = """tiny\t2\t0\tofficial\tnamed
+c\ta\tnet/minecraft/Example
+\tm\t(La;)V\t<init>\t<init>
+"""
+    static final String OFFICIAL_FIELD = """tiny\t2\t0\tofficial\tnamed
+c\ta\tnet/minecraft/Example
+\tf\tI\ta\tcount
+"""
+    static final String PARCHMENT_CONSTRUCTOR = """{
+  "version": "1.1.0",
+  "classes": [
+    {
+      "name": "net/minecraft/Example",
+      "methods": [
+        {
+          "name": "<init>",
+          "descriptor": "(Lnet/minecraft/Example;)V",
+          "parameters": [ { "index": 1, "name": "other", "javadoc": "The example to copy" } ],
+          "javadoc": ["Creates a copy"]
+        },
+        {
+          "name": "toString",
+          "descriptor": "()Ljava/lang/String;",
+          "javadoc": ["Describes the example"]
+        },
+        {
+          "name": "equals",
+          "descriptor": "(Ljava/lang/Object;)Z",
+          "parameters": [ { "index": 1, "name": "obj" } ]
+        }
+      ]
+    }
+  ]
+}
+"""
+
+    def "layers keyed by another namespace match rebuilding the tree for every layer"() {
+        given:
+            def layers = [
+                    new IntermediaryMappingLayer(writeIntermediary(INTERMEDIARY_FIXTURE)),
+                    new ParchmentMappingLayer(writeParchmentZip(PARCHMENT_FIXTURE), false),
+                    new TinyMappingLayer(MappingNamespace.OFFICIAL, OFFICIAL_RENAME),
+                    new ParchmentMappingLayer(writeParchmentZip(PARCHMENT_RENAMED), false)
+            ]
+        when:
+            def mappings = new LayeredMappingsProcessor(new LayeredMappingSpec([])).getMappings(layers)
+            def expected = getMappingsByRebuilding(layers)
+            def example = mappings.getClass("net/minecraft/Example")
+            def copy = example.getMethod("copy", "(Lnet/minecraft/Example;)V")
+        then:
+            mappings.srcNamespace == expected.srcNamespace
+            mappings.dstNamespaces == expected.dstNamespaces
+            flatten(mappings) == flatten(expected)
+
+            // Later layers win, and are looked up by the names of the earlier layers
+            example.comment == "Replaced"
+            example.getField("count", "I").comment == "The count"
+            copy.comment == "Copies the example\nfrom another one"
+            copy.args*.srcName == ["other"]
+            copy.args[0].comment == "The example to copy"
+            mappings.getClass("net/minecraft/class_2").getMethod("method_2", "()V") != null
+    }
+
+    def "members missing from intermediary are kept"() {
+        given:
+            def layers = [
+                    new IntermediaryMappingLayer(writeIntermediary(INTERMEDIARY_FIXTURE)),
+                    new TinyMappingLayer(MappingNamespace.OFFICIAL, OFFICIAL_CONSTRUCTOR),
+                    new ParchmentMappingLayer(writeParchmentZip(PARCHMENT_CONSTRUCTOR), false),
+                    // The rebuilding reference only gives the members added by a named layer an official name once it switches the tree again
+                    new TinyMappingLayer(MappingNamespace.OFFICIAL, OFFICIAL_FIELD)
+            ]
+        when:
+            def mappings = new LayeredMappingsProcessor(new LayeredMappingSpec([])).getMappings(layers)
+            def expected = getMappingsByRebuilding(layers)
+            def example = mappings.getClass("net/minecraft/Example")
+            def constructor = example.getMethod("<init>", "(Lnet/minecraft/Example;)V")
+        then:
+            mappings.srcNamespace == expected.srcNamespace
+            mappings.dstNamespaces == expected.dstNamespaces
+            flatten(mappings) == flatten(expected)
+
+            constructor.comment == "Creates a copy"
+            constructor.args*.srcName == ["other"]
+            constructor.args[0].comment == "The example to copy"
+            example.getMethod("toString", "()Ljava/lang/String;").comment == "Describes the example"
+            example.getMethod("equals", "(Ljava/lang/Object;)Z").args*.srcName == ["obj"]
+    }
+
+    /**
+     * The layering used before the lookup visitor, every layer not keyed by named gets a tree rebuilt with its namespace as the source.
+     */
+    static MemoryMappingTree getMappingsByRebuilding(List<MappingLayer> layers) {
+        MemoryMappingTree mappingTree = new MemoryMappingTree()
+
+        for (MappingLayer layer : layers) {
+            boolean rebuild = layer.sourceNamespace != MappingNamespace.NAMED
+            MemoryMappingTree workingTree = mappingTree
+
+            if (rebuild) {
+                workingTree = new MemoryMappingTree()
+
+                if (mappingTree.srcNamespace != null) {
+                    mappingTree.accept(new MappingSourceNsSwitch(workingTree, layer.sourceNamespace.stringValue()))
+                }
+            }
+
+            layer.visit(workingTree)
+
+            if (rebuild) {
+                mappingTree = new MemoryMappingTree()
+                workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingNamespace.NAMED.stringValue()))
+            }
+        }
+
+        return mappingTree
+    }
+
+    /**
+     * Returns one sorted line per element, so trees that only differ in the order of their elements compare equal.
+     */
+    static List<String> flatten(MappingTree tree) {
+        def names = { MappingTree.ElementMapping element ->
+            ([element.srcName] + (0..<tree.dstNamespaces.size()).collect { element.getDstName(it) }).join("\t")
+        }
+        List<String> lines = []
+
+        tree.classes.each { c ->
+            lines << "c\t${names(c)}\t${c.comment}"
+            c.fields.each { f -> lines << "f\t${c.srcName}\t${f.srcDesc}\t${names(f)}\t${f.comment}" }
+            c.methods.each { m ->
+                lines << "m\t${c.srcName}\t${m.srcDesc}\t${names(m)}\t${m.comment}"
+                m.args.each { a -> lines << "p\t${c.srcName}\t${m.srcName}${m.srcDesc}\t${a.argPosition}\t${a.lvIndex}\t${names(a)}\t${a.comment}" }
+            }
+        }
+
+        return lines.collect { it.toString() }.sort()
+    }
+
+    static class TinyMappingLayer implements MappingLayer {
+        final MappingNamespace sourceNamespace
+        final String tiny
+
+        TinyMappingLayer(MappingNamespace sourceNamespace, String tiny) {
+            this.sourceNamespace = sourceNamespace
+            this.tiny = tiny
+        }
+
+        @Override
+        void visit(MappingVisitor mappingVisitor) throws IOException {
+            Tiny2Reader.read(new StringReader(tiny), mappingVisitor)
+        }
+
+        @Override
+        String getFingerprint() {
+            return tiny
+        }
+
+        @Override
+        MappingNamespace getSourceNamespace() {
+            return sourceNamespace
+        }
+    }
+}
@@ -38,7 +38,10 @@ import net.fabricmc.mappingio.tree.MemoryMappingTree
 import org.gradle.api.logging.Logger
 import spock.lang.Specification
 
+import java.nio.charset.StandardCharsets
+import java.util.zip.ZipEntry
 import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
 
 abstract class LayeredMappingsSpecification extends Specification implements LayeredMappingsTestConstants {
     Logger mockLogger = Mock(Logger)
@@ -72,6 +75,23 @@ abstract class LayeredMappingsSpecification extends Specification implements Lay
         return dst
     }
 
+    File writeIntermediary(String tiny) {
+        File file = File.createTempFile("intermediary", ".tiny", tempDir)
+        file.text = tiny
+        return file
+    }
+
+    File writeParchmentZip(String json) {
+        File file = File.createTempFile("parchment", ".zip", tempDir)
+
+        new ZipOutputStream(file.newOutputStream()).withCloseable {
+            it.putNextEntry(new ZipEntry("parchment.json"))
+            it.write(json.getBytes(StandardCharsets.UTF_8))
+        }
+
+        return file
+    }
+
     MemoryMappingTree getSingleMapping(MappingsSpec<? extends MappingLayer> spec) {
         MemoryMappingTree mappingTree = new MemoryMappingTree()
         spec.createLayer(mappingContext).visit(mappingTree)
@@ -44,4 +44,34 @@ interface LayeredMappingsTestConstants {
 
     public static final String PARCHMENT_NOTATION = "org.parchmentmc.data:parchment-1.16.5:20210608-SNAPSHOT@zip"
     public static final String PARCHMENT_URL = "https://maven.parchmentmc.net/org/parchmentmc/data/parchment-1.16.5/20210608-SNAPSHOT/parchment-1.16.5-20210608-SNAPSHOT.zip"
-}
\ No newline at end of file
+
+    public static final String INTERMEDIARY_FIXTURE = """tiny\t2\t0\tofficial\tintermediary
+c\ta\tnet/minecraft/class_1
+\tf\tI\ta\tfield_1
+\tm\t(La;)V\tb\tmethod_1
+c\tb\tnet/minecraft/class_2
+\tm\t()V\tc\tmethod_2
+"""
+    public static final String PARCHMENT_FIXTURE_NOTATION = "org.parchmentmc.data:parchment-test:1@zip"
+    public static final String PARCHMENT_FIXTURE = """{
+  "version": "1.1.0",
+  "classes": [
+    {
+      "name": "net/minecraft/class_1",
+      "javadoc": ["An example class"],
+      "fields": [
+        { "name": "field_1", "descriptor": "I", "javadoc": ["The count"] }
+      ],
+      "methods": [
+        {
+          "name": "method_1",
+          "descriptor": "(Lnet/minecraft/class_1;)V",
+          "parameters": [ { "index": 1, "name": "other", "javadoc": "The other example" } ],
+          "javadoc": ["Copies the example", "from another one"]
+        }
+      ]
+    }
+  ]
+}
+"""
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2021 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.layeredmappings
+
+import groovy.json.JsonSlurper
+import net.fabricmc.loom.configuration.providers.mappings.parchment.ParchmentV1Reader
+import net.fabricmc.mappingio.MappedElementKind
+import net.fabricmc.mappingio.MappingVisitor
+import spock.lang.Specification
+
+class ParchmentV1ReaderTest extends Specification {
+    static final String PARCHMENT = """{
+  "version": "1.1.0",
+  "packages": [ { "name": "net/minecraft", "javadoc": ["The game"] } ],
+  "classes": [
+    {
+      "name": "net/minecraft/class_1",
+      "javadoc": ["An example class", "over two lines"],
+      "fields": [
+        { "name": "field_1", "descriptor": "I", "javadoc": ["The count"] },
+        { "name": "field_2", "descriptor": "Ljava/lang/String;" }
+      ],
+      "methods": [
+        {
+          "name": "method_1",
+          "descriptor": "(IJLjava/lang/String;)V",
+          "parameters": [
+            { "index": 1, "name": "count", "javadoc": "The count" },
+            { "index": 2, "name": "time" },
+            { "index": 4, "name": "label", "javadoc": null }
+          ],
+          "javadoc": ["Sets the values"]
+        },
+        { "name": "method_2", "descriptor": "()V", "parameters": null, "javadoc": null }
+      ]
+    },
+    {
+      "fields": [
+        { "name": "field_3", "descriptor": "I", "javadoc": ["The x coordinate"] },
+        { "name": "field_4", "descriptor": "I" }
+      ],
+      "methods": [
+        {
+          "descriptor": "(II)V",
+          "parameters": [ { "name": "x", "index": 1 }, { "name": "y", "index": 2, "javadoc": "The y coordinate" } ],
+          "name": "<init>"
+        }
+      ],
+      "name": "net/minecraft/class_2",
+      "javadoc": ["A record"]
+    },
+    { "name": "net/minecraft/class_3", "fields": null, "methods": null }
+  ]
+}
+"""
+
+    def "visits the same elements in the same order as the tree model"() {
+        given:
+            def actual = new RecordingVisitor()
+            def expected = new RecordingVisitor()
+        when:
+            ParchmentV1Reader.readContent(new StringReader(PARCHMENT), actual)
+            visitTree(new JsonSlurper().parseText(PARCHMENT) as Map, expected)
+        then:
+            actual.events == expected.events
+            actual.events.contains("comment CLASS An example class\nover two lines")
+            actual.events.contains("arg 1 1 x")
+            actual.events.contains("comment METHOD_ARG The y coordinate")
+    }
+
+    def "skips the members of classes the visitor is not interested in"() {
+        given:
+            def actual = new RecordingVisitor(skippedClasses: ["net/minecraft/class_1", "net/minecraft/class_2"] as Set)
+            def expected = new RecordingVisitor(skippedClasses: actual.skippedClasses)
+        when:
+            ParchmentV1Reader.readContent(new StringReader(PARCHMENT), actual)
+            visitTree(new JsonSlurper().parseText(PARCHMENT) as Map, expected)
+        then:
+            actual.events == expected.events
+            actual.events == ["class net/minecraft/class_1", "class net/minecraft/class_2", "class net/minecraft/class_3", "content CLASS"]
+    }
+
+    /**
+     * The visit order of the removed ParchmentTreeV1 model, fields are visited before methods and javadocs after the members.
+     */
+    static void visitTree(Map json, MappingVisitor visitor) {
+        json.classes?.each { Map c ->
+            if (!visitor.visitClass(c.name as String) || !visitor.visitElementContent(MappedElementKind.CLASS)) {
+                return
+            }
+
+            c.fields?.each { Map f ->
+                if (visitor.visitField(f.name as String, f.descriptor as String) && visitor.visitElementContent(MappedElementKind.FIELD) && f.javadoc != null) {
+                    visitor.visitComment(MappedElementKind.FIELD, (f.javadoc as List).join("\n"))
+                }
+            }
+
+            c.methods?.each { Map m ->
+                if (!visitor.visitMethod(m.name as String, m.descriptor as String) || !visitor.visitElementContent(MappedElementKind.METHOD)) {
+                    return
+                }
+
+                m.parameters?.each { Map p ->
+                    if (visitor.visitMethodArg(p.index as int, p.index as int, p.name as String) && visitor.visitElementContent(MappedElementKind.METHOD_ARG) && p.javadoc != null) {
+                        visitor.visitComment(MappedElementKind.METHOD_ARG, p.javadoc as String)
+                    }
+                }
+
+                if (m.javadoc != null) {
+                    visitor.visitComment(MappedElementKind.METHOD, (m.javadoc as List).join("\n"))
+                }
+            }
+
+            if (c.javadoc != null) {
+                visitor.visitComment(MappedElementKind.CLASS, (c.javadoc as List).join("\n"))
+            }
+        }
+    }
+
+    static class RecordingVisitor implements MappingVisitor {
+        List<String> events = []
+        Set<String> skippedClasses = [] as Set
+
+        @Override
+        void visitNamespaces(String srcNamespace, List<String> dstNamespaces) {
+            events << "namespaces $srcNamespace $dstNamespaces".toString()
+        }
+
+        @Override
+        boolean visitClass(String srcName) {
+            events << "class $srcName".toString()
+            return !skippedClasses.contains(srcName)
+        }
+
+        @Override
+        boolean visitField(String srcName, String srcDesc) {
+            events << "field $srcName $srcDesc".toString()
+            return true
+        }
+
+        @Override
+        boolean visitMethod(String srcName, String srcDesc) {
+            events << "method $srcName $srcDesc".toString()
+            return true
+        }
+
+        @Override
+        boolean visitMethodArg(int argPosition, int lvIndex, String srcName) {
+            events << "arg $argPosition $lvIndex $srcName".toString()
+            return true
+        }
+
+        @Override
+        boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, String srcName) {
+            events << "var $lvtRowIndex $lvIndex $startOpIdx $srcName".toString()
+            return true
+        }
+
+        @Override
+        void visitDstName(MappedElementKind targetKind, int namespace, String name) {
+            events << "dst $targetKind $namespace $name".toString()
+        }
+
+        @Override
+        void visitDstDesc(MappedElementKind targetKind, int namespace, String desc) {
+            events << "dstDesc $targetKind $namespace $desc".toString()
+        }
+
+        @Override
+        boolean visitElementContent(MappedElementKind targetKind) {
+            events << "content $targetKind".toString()
+            return true
+        }
+
+        @Override
+        void visitComment(MappedElementKind targetKind, String comment) {
+            events << "comment $targetKind $comment".toString()
+        }
+    }
+}